@@ -0,0 +1,28 @@
+package app.nush.examclock.connection;
+
+import app.nush.examclock.model.Exam;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of inbound new_exam events, for every time format the web panel may send
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ClientSocketBenchmark {
+    @Param({"10:30am", "10:30", "9:30am", "9:30", "10am", "9am"})
+    public String time;
+    private Object[] event;
+
+    @Setup
+    public void setup() {
+        event = new Object[]{"request", "Mathematics", "2020-11-02", time, "23:59"};
+    }
+
+    @Benchmark
+    public Exam decodeNewExam() {
+        return ClientSocket.decodeNewExam(event);
+    }
+}
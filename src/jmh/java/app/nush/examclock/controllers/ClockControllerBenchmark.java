@@ -0,0 +1,41 @@
+package app.nush.examclock.controllers;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Second hand easing, called every pulse
+ * <p>
+ * exact evaluates the curve with Math.pow like interpolate used to, as a baseline for the table
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ClockControllerBenchmark {
+    @Param({"0", "5", "20"})
+    public double speed;
+    private double value;
+
+    @Setup
+    public void setup() {
+        ClockController.speed.set(speed);
+    }
+
+    @Benchmark
+    public double interpolate() {
+        // one frame at 60 Hz, wrapping over a full minute
+        value = (value + 0.016) % 60;
+        return ClockController.interpolate(value - .5);
+    }
+
+    @Benchmark
+    public double exact() {
+        value = (value + 0.016) % 60;
+        double shifted = value - .5;
+        if (speed == 0) return shifted;
+        double whole = Math.floor(shifted);
+        double min = Math.pow(2, -speed);
+        return whole + ClockController.interpolateExact(shifted - whole, speed, min, 1 / (1 - min));
+    }
+}
@@ -0,0 +1,30 @@
+package app.nush.examclock.display;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Seven segment updates on the node tree, the clock is never attached to a scene
+ * <p>
+ * The cached canvas mode needs a running toolkit to rasterize its glyphs, so it is left out
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DigitalClockBenchmark {
+    private DigitalClock digitalClock;
+    private int second;
+
+    @Setup
+    public void setup() {
+        DigitalClock.digitalClockCachedProperty.set(false);
+        digitalClock = new DigitalClock();
+    }
+
+    @Benchmark
+    public void refreshClocks() {
+        second = (second + 1) % 86400;
+        digitalClock.refreshClocks(second / 3600, second / 60 % 60, second % 60);
+    }
+}
@@ -0,0 +1,49 @@
+package app.nush.examclock.display;
+
+import app.nush.examclock.model.Exam;
+import app.nush.examclock.model.ExamTimeline;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Text and style generation of every exam holder for one frame
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExamHolderRendererBenchmark {
+    @Param({"1", "10", "50", "100", "500"})
+    public int examCount;
+    @Param({"false", "true"})
+    public boolean simplified;
+    private ExamTimeline[] timelines;
+    private ExamHolderRenderer[] renderers;
+    private long now;
+
+    @Setup
+    public void setup() {
+        LocalTime start = LocalTime.now().withNano(0);
+        timelines = new ExamTimeline[examCount];
+        renderers = new ExamHolderRenderer[examCount];
+        for (int i = 0; i < examCount; i++) {
+            // a mix of running, ended, pending and future exams
+            LocalDate date = LocalDate.now().plusDays(i % 4 == 3 ? 1 : 0);
+            LocalTime examStart = start.minusMinutes(i % 4 == 1 ? 180 : i % 4 == 2 ? -60 : 30);
+            timelines[i] = new Exam("Exam " + i, date, examStart, examStart.plusMinutes(90)).getTimeline();
+            renderers[i] = new ExamHolderRenderer();
+            renderers[i].invalidate();
+        }
+        now = System.currentTimeMillis();
+    }
+
+    @Benchmark
+    public void renderFrame(Blackhole blackhole) {
+        now += 16;
+        for (int i = 0; i < examCount; i++)
+            blackhole.consume(renderers[i].render(timelines[i], now, simplified, 1, false));
+    }
+}
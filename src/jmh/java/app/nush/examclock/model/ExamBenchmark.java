@@ -0,0 +1,55 @@
+package app.nush.examclock.model;
+
+import app.nush.examclock.controllers.MainController;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exam parsing and the Gson round trip used by save, load, import and export
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExamBenchmark {
+    @Param({"1", "10", "50", "100", "500"})
+    public int examCount;
+    private ObservableList<Exam> exams;
+    private String json;
+
+    @Setup
+    public void setup() {
+        exams = FXCollections.observableArrayList();
+        LocalDate date = LocalDate.now();
+        for (int i = 0; i < examCount; i++) {
+            LocalTime start = LocalTime.of(8, 0).plusMinutes(i % 600);
+            exams.add(new Exam("Exam " + i, date.plusDays(i / 600), start, start.plusMinutes(90)));
+        }
+        json = MainController.gson.toJson(exams);
+    }
+
+    @Benchmark
+    public void parseTimelines(Blackhole blackhole) {
+        for (Exam exam : exams) blackhole.consume(ExamTimeline.parse(exam.date, exam.start, exam.end));
+    }
+
+    @Benchmark
+    public void cachedTimelines(Blackhole blackhole) {
+        for (Exam exam : exams) blackhole.consume(exam.isRunning());
+    }
+
+    @Benchmark
+    public String serialize() {
+        return MainController.gson.toJson(exams);
+    }
+
+    @Benchmark
+    public Exam[] deserialize() {
+        return MainController.gson.fromJson(json, Exam[].class);
+    }
+}
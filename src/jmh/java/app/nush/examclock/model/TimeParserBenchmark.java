@@ -0,0 +1,49 @@
+package app.nush.examclock.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time input parsing, what runs on every keystroke in the add exam dialog
+ * <p>
+ * formatterChain is the old approach, every format in turn with exceptions for the misses, kept as a baseline
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TimeParserBenchmark {
+    private static final DateTimeFormatter[] formatters = {
+            DateTimeFormatter.ofPattern("hh:mma"),
+            DateTimeFormatter.ofPattern("HH:mm"),
+            DateTimeFormatter.ofPattern("h:mma"),
+            DateTimeFormatter.ofPattern("H:mm"),
+            DateTimeFormatter.ofPattern("hha"),
+            DateTimeFormatter.ofPattern("ha")
+    };
+    /**
+     * One per format, plus half typed input that matches nothing
+     */
+    @Param({"10:30am", "10:30", "9:30am", "9:30", "10am", "9am", "10:3", "25:00"})
+    public String time;
+
+    @Benchmark
+    public LocalTime timeParser() {
+        return TimeParser.parse(time);
+    }
+
+    @Benchmark
+    public LocalTime formatterChain() {
+        String text = time.replace(" ", "");
+        for (DateTimeFormatter formatter : formatters) {
+            try {
+                return LocalTime.parse(text, formatter);
+            } catch (DateTimeParseException ignored) {
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,61 @@
+package app.nush.examclock.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole exam season, 10k rows, through the timetable import as CSV and as iCalendar
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TimetableImportBenchmark {
+    @Param({"10000"})
+    public int rows;
+
+    private String csv;
+    private String ics;
+
+    @Setup
+    public void setup() throws IOException {
+        TimetableSamples.check();
+        StringBuilder csv = new StringBuilder("Subject,Paper Code,Date,Start Time,Duration (mins),Venue\r\n");
+        StringBuilder ics = new StringBuilder("BEGIN:VCALENDAR\r\nVERSION:2.0\r\n");
+        for (int i = 0; i < rows; i++) {
+            int day = 1 + i % 28;
+            String venue = "Hall " + (char) ('A' + i % 8);
+            csv.append("\"Paper ").append(i).append(", Section A\",P").append(i).append(',')
+                    .append(day).append("/11/2020,").append(i % 2 == 0 ? "8:00am" : "14:30").append(",120,")
+                    .append(venue).append("\r\n");
+            String date = String.format("202011%02d", day);
+            ics.append("BEGIN:VEVENT\r\nUID:P").append(i).append("\r\nSUMMARY:Paper ").append(i).append("\\, Section A\r\n")
+                    .append("LOCATION:").append(venue).append("\r\n")
+                    .append("DTSTART:").append(date).append(i % 2 == 0 ? "T080000" : "T143000").append("\r\n")
+                    .append("DURATION:PT2H\r\nEND:VEVENT\r\n");
+        }
+        ics.append("END:VCALENDAR\r\n");
+        this.csv = csv.toString();
+        this.ics = ics.toString();
+    }
+
+    @Benchmark
+    public TimetableImport.Result csv() throws IOException {
+        return new TimetableImport().run(new StringReader(csv), new CsvTimetableParser(), Collections.emptySet());
+    }
+
+    @Benchmark
+    public TimetableImport.Result ics() throws IOException {
+        return new TimetableImport().run(new StringReader(ics), new IcsTimetableParser(), Collections.emptySet());
+    }
+
+    @Benchmark
+    public TimetableImport.Result csvOneVenue() throws IOException {
+        TimetableImport timetableImport = new TimetableImport();
+        timetableImport.venue = "Hall C";
+        return timetableImport.run(new StringReader(csv), new CsvTimetableParser(), Collections.emptySet());
+    }
+}
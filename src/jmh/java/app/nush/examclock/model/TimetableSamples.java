@@ -0,0 +1,70 @@
+package app.nush.examclock.model;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collections;
+
+/**
+ * Small timetables with known results, checked before the import is benchmarked, a fast wrong parser is no use
+ * <p>
+ * Also runs on its own, with the jmh classpath
+ */
+public final class TimetableSamples {
+    /**
+     * Exported calendars put reminders inside the event, their DURATION and SUMMARY are not the exam's
+     */
+    static final String ICS = "BEGIN:VCALENDAR\r\nVERSION:2.0\r\n" +
+            "BEGIN:VEVENT\r\nUID:MA1\r\nSUMMARY:Mathematics\r\nLOCATION:Hall A\r\n" +
+            "DTSTART:20201102T080000\r\nDTEND:20201102T100000\r\n" +
+            "BEGIN:VALARM\r\nACTION:DISPLAY\r\nSUMMARY:Reminder\r\nDESCRIPTION:Reminder\r\nTRIGGER:-PT15M\r\nDURATION:PT5M\r\nREPEAT:1\r\nEND:VALARM\r\n" +
+            "END:VEVENT\r\n" +
+            "BEGIN:VEVENT\r\nUID:PH1\r\nSUMMARY:Physics\\, Paper 1\r\n" +
+            "DTSTART:20201103T143000\r\nDURATION:PT1H30M\r\nDTEND:20201103T160000\r\n" +
+            "END:VEVENT\r\n" +
+            "BEGIN:VEVENT\r\nUID:CH1\r\nSUMMARY:Chemistry\r\nDTSTART:20201104T090000\r\nDURATION:PT2H\r\nEND:VEVENT\r\n" +
+            "END:VCALENDAR\r\n";
+    static final String CSV = "Subject,Date,Time,Duration (mins),Venue\r\n" +
+            "Mathematics,2/11/2020,08:00 - 10:00,,Hall A\r\n" +
+            "\"Physics, Paper 1\",3/11/2020,2:30pm,90,Hall B\r\n";
+
+    private TimetableSamples() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        check();
+        System.out.println("Timetable samples ok");
+    }
+
+    /**
+     * Parses the samples and compares them to what they should give
+     *
+     * @throws IOException           if a sample cannot be read
+     * @throws IllegalStateException if a sample parses wrong
+     */
+    public static void check() throws IOException {
+        TimetableImport.Result ics = new TimetableImport().run(new StringReader(ICS), new IcsTimetableParser(), Collections.emptySet());
+        expect(ics, 3);
+        expect(ics.exams.get(0), "Mathematics", "2020-11-02", "08:00", "10:00");
+        expect(ics.exams.get(1), "Physics, Paper 1", "2020-11-03", "14:30", "16:00");
+        expect(ics.exams.get(2), "Chemistry", "2020-11-04", "09:00", "11:00");
+
+        TimetableImport.Result csv = new TimetableImport().run(new StringReader(CSV), new CsvTimetableParser(), Collections.emptySet());
+        expect(csv, 2);
+        expect(csv.exams.get(0), "Mathematics", "2020-11-02", "08:00", "10:00");
+        expect(csv.exams.get(1), "Physics, Paper 1", "2020-11-03", "14:30", "16:00");
+    }
+
+    private static void expect(TimetableImport.Result result, int exams) {
+        if (result.exams.size() != exams || result.skipped != 0)
+            throw new IllegalStateException("Expected " + exams + " exams, got " + result.exams.size() + ", skipped " + result.problems);
+    }
+
+    private static void expect(Exam exam, String name, String date, String start, String end) {
+        if (!exam.getName().equals(name) || !exam.getDateObj().equals(LocalDate.parse(date))
+                || !exam.getStartTimeObj().equals(LocalTime.parse(start)) || !exam.getEndTimeObj().equals(LocalTime.parse(end)))
+            throw new IllegalStateException("Expected " + name + " " + date + " " + start + "-" + end + ", got " +
+                    exam.getName() + " " + exam.getDateObj() + " " + exam.getStartTimeObj() + "-" + exam.getEndTimeObj());
+    }
+}
@@ -2,7 +2,10 @@ package app.nush.examclock;
 
 import app.nush.examclock.connection.ClientSocket;
 import app.nush.examclock.controllers.MainController;
+import app.nush.examclock.controllers.MirrorController;
 import app.nush.examclock.controllers.PreferenceController;
+import app.nush.examclock.diagnostics.JvmMetrics;
+import app.nush.examclock.diagnostics.StartupReport;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
@@ -10,9 +13,17 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
+import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.prefs.Preferences;
 import java.util.stream.Collectors;
 
@@ -27,6 +38,10 @@ import java.util.stream.Collectors;
  * @see <a href="https://github.com/appventure-nush/exam-clock-2020">Github Repo</a>
  */
 public class ExamClock extends Application {
+    /**
+     * Set by --kiosk, or -Dexamclock.kiosk=true from the kiosk launcher
+     */
+    public static final String KIOSK_PROPERTY = "examclock.kiosk";
     public static Preferences preferences;
     private static ExamClock instance;
     private MainController controller;
@@ -39,19 +54,69 @@ public class ExamClock extends Application {
         return instance;
     }
 
+    /**
+     * Kiosk profile, for old thin clients that only show the clock.
+     * No menu bar, fewer nodes per exam and the software pipeline
+     *
+     * @return if running as a kiosk
+     */
+    public static boolean isKiosk() {
+        return Boolean.getBoolean(KIOSK_PROPERTY);
+    }
+
+    /**
+     * Gets the directory for data that does not fit in preferences
+     *
+     * @return ~/.exam-clock
+     */
+    public static Path getDataDirectory() {
+        return Paths.get(System.getProperty("user.home"), ".exam-clock");
+    }
+
+    /**
+     * Mirror windows asked for on the command line, --mirror opens one with the clock and the exams,
+     * --mirror=clock:1.5 one with only the clock, and everything 1.5 times as large. May be repeated
+     *
+     * @return the specs, in order
+     */
+    private List<MirrorController.Spec> getMirrorSpecs() {
+        List<MirrorController.Spec> specs = new ArrayList<>();
+        for (String arg : getParameters().getRaw()) {
+            if (!arg.equals("--mirror") && !arg.startsWith("--mirror=")) continue;
+            try {
+                specs.add(MirrorController.Spec.parse(arg.equals("--mirror") ? "" : arg.substring("--mirror=".length())));
+            } catch (IllegalArgumentException e) {
+                System.out.println("Unknown mirror " + arg + ", expected --mirror=clock|exams|both[:scale]");
+            }
+        }
+        return specs;
+    }
+
     @Override
     public void start(Stage primaryStage) {
         try {
             instance = this;
+            StartupReport.mark("toolkit");
+            JvmMetrics.register();
             preferences = Preferences.userNodeForPackage(ExamClock.class);
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml_main.fxml"));
             Parent root = loader.load();
             controller = loader.getController();
+            StartupReport.mark("fxml");
             controller.setStage(primaryStage);
             Scene scene = new Scene(root);
             scene.getStylesheets().add("/main.css");
             scene.getStylesheets().add("/theme.css");
             scene.getStylesheets().add(PreferenceController.nightMode.get() ? "/theme.dark.css" : "/theme.light.css");
+            root.applyCss(); // would happen in the first pulse anyway, done here so the trace can time it
+            StartupReport.mark("css");
+            scene.getAccelerators().put(new KeyCodeCombination(KeyCode.D, KeyCombination.SHORTCUT_DOWN, KeyCombination.SHIFT_DOWN), controller::showDiagnostics);
+            if (isKiosk()) {
+                // the menu bar is gone, its shortcuts to settings and connection stay
+                ((BorderPane) root).setTop(null);
+                scene.getAccelerators().put(new KeyCodeCombination(KeyCode.E, KeyCombination.SHORTCUT_DOWN), () -> controller.showSettings(null));
+                scene.getAccelerators().put(new KeyCodeCombination(KeyCode.C, KeyCombination.SHORTCUT_DOWN), () -> controller.showConnection(null));
+            }
             primaryStage.titleProperty().bind(Bindings.concat("Exam Clock " + Version.getVersion() + " : ", ClientSocket.connectivityStateProperty));
 
             primaryStage.setScene(scene);
@@ -61,6 +126,9 @@ public class ExamClock extends Application {
                 System.exit(0);
             });
             primaryStage.show();
+            StartupReport.afterShow();
+            StartupReport.afterFirstFrame(controller::startDeferred);
+            for (MirrorController.Spec spec : getMirrorSpecs()) controller.openMirror(spec);
         } catch (Exception e) {
             e.printStackTrace();
             Platform.runLater(() -> {
@@ -1,5 +1,9 @@
 package app.nush.examclock;
 
+import app.nush.examclock.diagnostics.StartupReport;
+
+import java.util.Arrays;
+
 /**
  * JavaFX in Java 9+ is dumb
  * <p>
@@ -7,6 +11,21 @@ package app.nush.examclock;
  */
 public class Main {
     public static void main(String... args) {
+        StartupReport.mark("main");
+        if (Arrays.asList(args).contains("--kiosk")) System.setProperty(ExamClock.KIOSK_PROPERTY, "true");
+        if (Boolean.getBoolean(ExamClock.KIOSK_PROPERTY)) {
+            // Prism reads these once the toolkit starts, so they have to be set before launching.
+            // The software pipeline skips loading D3D/ES2 and their texture caches, the thin clients have no GPU worth it
+            setDefault("prism.order", "sw");
+            setDefault("prism.lcdtext", "false");
+        }
         ExamClock.main(args);
     }
+
+    /**
+     * Sets a system property unless it was given on the command line
+     */
+    private static void setDefault(String key, String value) {
+        if (System.getProperty(key) == null) System.setProperty(key, value);
+    }
 }
@@ -1,10 +1,14 @@
 package app.nush.examclock.connection;
 
-import app.nush.examclock.controllers.AddExamController;
+import app.nush.examclock.ExamClock;
 import app.nush.examclock.controllers.MainController;
 import app.nush.examclock.controllers.PreferenceController;
+import app.nush.examclock.diagnostics.Metrics;
 import app.nush.examclock.model.Exam;
+import app.nush.examclock.model.TimeParser;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import io.socket.client.Ack;
 import io.socket.client.IO;
 import io.socket.client.Socket;
 import javafx.application.Platform;
@@ -18,11 +22,16 @@ import java.io.UnsupportedEncodingException;
 import java.net.URISyntaxException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.time.DateTimeException;
+import java.text.ParsePosition;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.Year;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAccessor;
+import java.util.List;
+
+import static java.time.temporal.ChronoField.*;
 
 /**
  * The type Client socket.
@@ -37,7 +46,17 @@ public class ClientSocket {
      * The constant dateFormatter used for date data transfer (machine friendly, use just numbers)
      */
     public static final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    /**
+     * The central server, override with -Dexamclock.server=http://localhost:3000 to use the stand-in server
+     */
+    public static final String DEFAULT_SERVER = "https://exam-clock-nush.tk";
+    private final InboundStage inboundStage = new InboundStage();
     private final MainController controller;
+    private final ExamDeltaBatcher deltaBatcher = new ExamDeltaBatcher(this);
+    private final TimeSync timeSync = new TimeSync(this);
+    private final OutboundQueue outboundQueue = new OutboundQueue(ExamClock.getDataDirectory().resolve("outbound.json"));
+    private final VersionSync versionSync;
+    private IO.Options opts;
     private Socket socket;
 
     /**
@@ -47,60 +66,96 @@ public class ClientSocket {
      */
     public ClientSocket(MainController controller) {
         this.controller = controller;
+        versionSync = new VersionSync(this, controller.examRepository);
         OkHttpClient okHttpClient = new OkHttpClient.Builder().build();
         IO.setDefaultOkHttpWebSocketFactory(okHttpClient);
         IO.setDefaultOkHttpCallFactory(okHttpClient);
-        IO.Options opts = new IO.Options();
+        opts = new IO.Options();
         opts.path = "/socket.clocks";
         opts.callFactory = okHttpClient;
         opts.webSocketFactory = okHttpClient;
         try {
-            opts.query = "clock=" + URLEncoder.encode(identifySelf(), String.valueOf(StandardCharsets.UTF_8));
-            socket = IO.socket("https://exam-clock-nush.tk", opts);
-//            socket = IO.socket("http://localhost:3000", opts);
+            opts.query = identityQuery();
+            socket = IO.socket(System.getProperty("examclock.server", DEFAULT_SERVER), opts);
             socket.on(Socket.EVENT_CONNECT, args -> {
                 System.out.println("Connected to Server!");
+                Metrics.counter("socket.connects").increment();
+                deltaBatcher.resetSupport();
+                replayQueue();
+                timeSync.connected();
                 Platform.runLater(() -> connectivityStateProperty.set("Connected"));
             }).on(Socket.EVENT_CONNECT_TIMEOUT, args -> Platform.runLater(() -> connectivityStateProperty.set("Connection time out")))
                     .on(Socket.EVENT_RECONNECTING, args -> Platform.runLater(() -> connectivityStateProperty.set("Reconnecting")))
-                    .on(Socket.EVENT_DISCONNECT, args -> Platform.runLater(() -> connectivityStateProperty.set("Disconnected")));
+                    .on(Socket.EVENT_DISCONNECT, args -> {
+                        Metrics.counter("socket.disconnects").increment();
+                        Platform.runLater(() -> {
+                            connectivityStateProperty.set("Disconnected");
+                            updateIdentity(); // the exams may have changed by the time it reconnects
+                        });
+                    });
+            socket.on(Socket.EVENT_RECONNECT_ATTEMPT, args -> Metrics.counter("socket.reconnect_attempts").increment());
+            socket.on(Socket.EVENT_PONG, args -> {
+                if (args.length > 0 && args[0] instanceof Number)
+                    Metrics.histogram("socket.ping").recordMillis(((Number) args[0]).longValue());
+            });
+            Metrics.gauge("socket.connected", () -> isConnected() ? 1 : 0);
+            Metrics.gauge("queue.outbound", outboundQueue::size);
+            Metrics.gauge("queue.delta_pending", deltaBatcher::pending);
             socket.on("clock_id_clash", this::onClockIDClash);
-            socket.on("new_exam", this::onNewExam);
-            socket.on("edit_exam", this::onEditExam);
-            socket.on("delete_exam", this::onDeleteExam);
-            socket.on("toilet", this::onToilet);
+            socket.on("new_exam", args -> inboundStage.execute(() -> onNewExam(args)));
+            socket.on("edit_exam", args -> inboundStage.execute(() -> onEditExam(args)));
+            socket.on("delete_exam", args -> inboundStage.execute(() -> onDeleteExam(args)));
+            socket.on("toilet", args -> inboundStage.execute(() -> onToilet(args)));
             socket.on("request", this::onRequest);
+            socket.on("sync_request", args -> inboundStage.execute(() -> onSyncRequest(args)));
             controller.exams.addListener((ListChangeListener<Exam>) c -> {
                 while (c.next()) {
-                    c.getAddedSubList().forEach(exam -> socket.emit("new_exam", MainController.gson.toJson(exam)));
-                    c.getRemoved().forEach(exam -> socket.emit("delete_exam", exam.id));
+                    if (c.wasPermutated()) continue;
+                    c.getRemoved().forEach(exam -> deltaBatcher.removed(exam.id));
+                    c.getAddedSubList().forEach(deltaBatcher::added);
                 }
             });
-            PreferenceController.nameProperty.addListener(((observable, oldValue, newValue) -> socket.emit("rename", newValue)));
-            controller.toiletMaleOccupied.addListener((observable, oldValue, newValue) -> socket.emit("toilet", newValue ? "occupied" : "vacant", "male"));
-            controller.toiletFemaleOccupied.addListener((observable, oldValue, newValue) -> socket.emit("toilet", newValue ? "occupied" : "vacant", "female"));
+            controller.examRepository.addUpdateListener(deltaBatcher::updated);
+            PreferenceController.nameProperty.addListener(((observable, oldValue, newValue) -> emit("rename", "", newValue)));
+            controller.toiletMaleOccupied.addListener((observable, oldValue, newValue) -> emit("toilet", "male", newValue ? "occupied" : "vacant", "male"));
+            controller.toiletFemaleOccupied.addListener((observable, oldValue, newValue) -> emit("toilet", "female", newValue ? "occupied" : "vacant", "female"));
             socket.open();
         } catch (URISyntaxException | UnsupportedEncodingException e) {
             e.printStackTrace();
         }
     }
 
-    private static LocalTime parseTime(String time, int index) {
-        if (index >= AddExamController.timeFormatters.length)
-            throw new DateTimeParseException("Invalid date/time!", time, 0);
-        try {
-            return LocalTime.parse(time.replace(" ", ""), AddExamController.timeFormatters[index]);
-        } catch (DateTimeException e) {
-            return parseTime(time, index + 1);
-        }
+    /**
+     * Parses a yyyy-MM-dd date, without throwing
+     *
+     * @param date the date
+     * @return the date, null if invalid
+     */
+    static LocalDate parseDate(String date) {
+        ParsePosition position = new ParsePosition(0);
+        TemporalAccessor parsed = dateFormatter.parseUnresolved(date, position);
+        if (parsed == null || position.getIndex() != date.length()) return null;
+        long year = parsed.getLong(YEAR_OF_ERA);
+        long month = parsed.getLong(MONTH_OF_YEAR);
+        long day = parsed.getLong(DAY_OF_MONTH);
+        if (year > Year.MAX_VALUE || month < 1 || month > 12 || day < 1) return null;
+        if (day > YearMonth.of((int) year, (int) month).lengthOfMonth()) return null;
+        return LocalDate.of((int) year, (int) month, (int) day);
     }
 
     private void onToilet(Object[] objects) {
-        String gender = String.valueOf(objects[1]);
+        String gender;
+        try {
+            gender = String.valueOf(objects[1]);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            socket.emit("clock_error", requestId(objects), e.getMessage());
+            return;
+        }
         if (gender.equalsIgnoreCase("male"))
-            Platform.runLater(() -> controller.toiletMaleOccupied.set(!controller.toiletMaleOccupied.get()));
+            inboundStage.post(() -> controller.toiletMaleOccupied.set(!controller.toiletMaleOccupied.get()));
         else if (gender.equalsIgnoreCase("female"))
-            Platform.runLater(() -> controller.toiletFemaleOccupied.set(!controller.toiletFemaleOccupied.get()));
+            inboundStage.post(() -> controller.toiletFemaleOccupied.set(!controller.toiletFemaleOccupied.get()));
     }
 
     private void onRequest(Object[] objects) {
@@ -118,69 +173,197 @@ public class ClientSocket {
         } else socket.emit("request_callback", socketID, "rejected");
     }
 
+    /**
+     * Decodes the arguments of a new_exam event
+     *
+     * @param objects request id, name, date, start, end
+     * @return the exam, null if the date or a time is invalid
+     */
+    static Exam decodeNewExam(Object... objects) {
+        LocalDate date = parseDate(String.valueOf(objects[2]));
+        LocalTime start = TimeParser.parse(String.valueOf(objects[3]));
+        LocalTime end = TimeParser.parse(String.valueOf(objects[4]));
+        if (date == null || start == null || end == null) return null;
+        return new Exam(String.valueOf(objects[1]), date, start, end);
+    }
+
     private void onNewExam(Object... objects) {
         try {
-            Exam exam = new Exam(
-                    String.valueOf(objects[1]),
-                    LocalDate.parse(String.valueOf(objects[2]), dateFormatter),
-                    parseTime(String.valueOf(objects[3]), 0),
-                    parseTime(String.valueOf(objects[4]), 0));
-            Platform.runLater(() -> controller.exams.add(exam));
-        } catch (DateTimeException e) {
-            e.printStackTrace();
-            socket.emit("clock_error", objects[0], "date_time_invalid");
+            Exam exam = decodeNewExam(objects);
+            if (exam == null) socket.emit("clock_error", objects[0], "date_time_invalid");
+            else inboundStage.post(() -> controller.exams.add(exam)); // not visible to anyone else until then
         } catch (RuntimeException e) {
             e.printStackTrace();
-            socket.emit("clock_error", objects[0], e.getMessage());
+            socket.emit("clock_error", requestId(objects), e.getMessage());
         }
     }
 
+    /**
+     * Request id of an event, the first argument
+     *
+     * @return the id, null if the event has no arguments at all
+     */
+    private static Object requestId(Object... objects) {
+        return objects.length > 0 ? objects[0] : null;
+    }
+
+    /**
+     * Only the decoded values cross over, the exam itself is edited on the FX thread where it is read
+     */
     private void onEditExam(Object... objects) {
+        String id;
+        String name;
+        LocalDate date;
+        LocalTime start;
+        LocalTime end;
         try {
-            for (Exam exam : controller.exams) {
-                if (exam.id.equals(String.valueOf(objects[1]))) {
-                    exam.name = String.valueOf(objects[2]);
-                    exam.date = String.valueOf(objects[3]);
-                    exam.start = String.valueOf(objects[4]);
-                    exam.end = String.valueOf(objects[5]);
-                    Platform.runLater(() -> controller.getExamHolder(exam).setExam(exam));
-                    break;
-                }
-            }
-        } catch (DateTimeException e) {
-            e.printStackTrace();
-            socket.emit("clock_error", objects[0], "date_time_invalid");
+            id = String.valueOf(objects[1]);
+            name = String.valueOf(objects[2]);
+            date = parseDate(String.valueOf(objects[3]));
+            start = TimeParser.parse(String.valueOf(objects[4]));
+            end = TimeParser.parse(String.valueOf(objects[5]));
         } catch (RuntimeException e) {
             e.printStackTrace();
-            socket.emit("clock_error", objects[0], e.getMessage());
+            socket.emit("clock_error", requestId(objects), e.getMessage());
+            return;
         }
+        if (date == null || start == null || end == null) {
+            socket.emit("clock_error", objects[0], "date_time_invalid");
+            return;
+        }
+        inboundStage.post(() -> {
+            Exam exam = controller.examRepository.get(id);
+            if (exam == null) {
+                socket.emit("clock_error", objects[0], "exam_not_found");
+                return;
+            }
+            exam.name = name;
+            exam.setTimes(date, start, end);
+            controller.examRepository.touch(exam); // the holder, if on screen, follows the touch
+        });
     }
 
     private void onDeleteExam(Object... objects) {
-        String id = String.valueOf(objects[1]);
-        Platform.runLater(() -> {
-            for (int i = 0; i < controller.exams.size(); i++) {
-                if (controller.exams.get(i).id.equals(id)) {
-                    controller.exams.remove(i);
-                    return;
-                }
-            }
-            socket.emit("clock_error", objects[0], "exam_not_found");
+        String id;
+        try {
+            id = String.valueOf(objects[1]);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            socket.emit("clock_error", requestId(objects), e.getMessage());
+            return;
+        }
+        inboundStage.post(() -> {
+            if (!controller.examRepository.remove(id)) socket.emit("clock_error", objects[0], "exam_not_found");
         });
     }
 
+    /**
+     * Identity for the handshake, with the whole exam list unless the server is known to sync by version
+     */
     private String identifySelf() {
         JsonObject obj = new JsonObject();
         obj.addProperty("clockID", PreferenceController.clockID);
         obj.addProperty("clockName", PreferenceController.nameProperty.get());
-        obj.add("exams", MainController.gson.toJsonTree(controller.exams));
+        obj.addProperty("state", controller.examRepository.getStateVersion());
+        if (!versionSync.isSupported()) obj.add("exams", MainController.gson.toJsonTree(controller.exams));
         return obj.toString();
     }
 
+    private String identityQuery() throws UnsupportedEncodingException {
+        return "clock=" + URLEncoder.encode(identifySelf(), String.valueOf(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Rebuilds the handshake used by the next reconnect. FX thread only
+     */
+    void updateIdentity() {
+        try {
+            opts.query = identityQuery();
+        } catch (UnsupportedEncodingException e) {
+            e.printStackTrace();
+        }
+    }
+
     private void onClockIDClash(Object... args) {
         System.out.println("So somehow there's a clash of clock id");
-        controller.regenClockID();
-        socket.emit("clock_id_un_clash", identifySelf());
+        Platform.runLater(() -> {
+            controller.regenClockID();
+            socket.emit("clock_id_un_clash", identifySelf());
+            updateIdentity();
+            versionSync.connected();
+        });
+    }
+
+    /**
+     * Emits an event to the server, or queues it for the next connect when offline
+     *
+     * @param event the event
+     * @param key   what the event is about, only the latest queued event per key is kept
+     * @param args  the args
+     */
+    void emit(String event, String key, Object... args) {
+        if (isConnected()) socket.emit(event, args);
+        else outboundQueue.offer(event, key, args);
+    }
+
+    /**
+     * Replays events queued while offline, then syncs versions with the server
+     */
+    private void replayQueue() {
+        List<OutboundQueue.Entry> entries = outboundQueue.drain();
+        if (!entries.isEmpty()) System.out.println("Replaying " + entries.size() + " queued events");
+        for (OutboundQueue.Entry entry : entries) socket.emit(entry.event, (Object[]) entry.args);
+        Platform.runLater(versionSync::connected);
+    }
+
+    private void onSyncRequest(Object... objects) {
+        String[] ids;
+        try {
+            JsonObject request = MainController.gson.fromJson(String.valueOf(requestId(objects)), JsonObject.class);
+            ids = request == null || request.get("ids") == null ? null : MainController.gson.fromJson(request.get("ids"), String[].class);
+        } catch (RuntimeException e) {
+            System.out.println("Invalid sync request! " + e.getMessage());
+            return;
+        }
+        if (ids == null) {
+            System.out.println("Sync request without ids, ignored");
+            return;
+        }
+        inboundStage.post(() -> {
+            JsonArray exams = new JsonArray();
+            for (String id : ids) {
+                Exam exam = controller.examRepository.get(id);
+                if (exam != null) exams.add(MainController.gson.toJsonTree(exam));
+            }
+            JsonObject payload = new JsonObject();
+            payload.addProperty("state", controller.examRepository.getStateVersion());
+            payload.add("exams", exams);
+            socket.emit("exams_sync", payload.toString());
+        });
+    }
+
+    /**
+     * Emits an event to the server, ack is called if the server acknowledges it
+     *
+     * @param event the event
+     * @param ack   the ack
+     * @param args  the args
+     */
+    void emitWithAck(String event, Ack ack, Object... args) {
+        long sent = System.nanoTime();
+        socket.emit(event, args, ackArgs -> {
+            Metrics.histogram("socket.ack." + event).record(System.nanoTime() - sent);
+            ack.call(ackArgs);
+        });
+    }
+
+    /**
+     * Is connected
+     *
+     * @return if the socket is connected
+     */
+    boolean isConnected() {
+        return socket != null && socket.connected();
     }
 
     /**
@@ -0,0 +1,197 @@
+package app.nush.examclock.connection;
+
+import app.nush.examclock.controllers.MainController;
+import app.nush.examclock.model.Exam;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Coalesces exam list changes into a single exams_delta message
+ * <p>
+ * Changes are collected for a short window, an exam added and removed within it is never sent at all.
+ * The payload is {"delete": [ids], "new": [exams]}, deletes apply first.
+ * Old servers do not acknowledge exams_delta, in that case the batch is resent as
+ * plain new_exam and delete_exam events and the batcher sticks to those until the next connect.
+ * An ack lost to a disconnect says nothing about the server, the next connection probes again
+ */
+class ExamDeltaBatcher {
+    /**
+     * How long changes are collected before being sent
+     */
+    static final long WINDOW_MILLIS = 50;
+    /**
+     * How long to wait for the server to acknowledge an exams_delta
+     */
+    static final long ACK_TIMEOUT_MILLIS = 3000;
+
+    private final ClientSocket clientSocket;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Exam Delta Batcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * Pending changes by exam id, in order of first change
+     */
+    private final Map<String, Change> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+    /**
+     * null while unknown, probed with the first batch after connecting
+     */
+    private volatile Boolean deltaSupported;
+    /**
+     * Bumped on every connect, so a probe from an older connection cannot decide for this one
+     */
+    private volatile int connection;
+    /**
+     * Keys batches queued while offline, so one does not replace another
+     */
+    private long batch;
+
+    /**
+     * Instantiates a new exam delta batcher.
+     *
+     * @param clientSocket the client socket
+     */
+    ExamDeltaBatcher(ClientSocket clientSocket) {
+        this.clientSocket = clientSocket;
+    }
+
+    /**
+     * An exam was added, serialized right away since exams are mutable
+     *
+     * @param exam the exam
+     */
+    void added(Exam exam) {
+        JsonElement json = MainController.gson.toJsonTree(exam);
+        synchronized (this) {
+            Change change = pending.get(exam.id);
+            if (change == null) pending.put(exam.id, new Change(false, json));
+            else change.added = json;
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * An exam was removed
+     *
+     * @param id the exam id
+     */
+    synchronized void removed(String id) {
+        Change change = pending.get(id);
+        if (change == null) pending.put(id, new Change(true, null));
+        else if (change.removed) change.added = null;
+        else pending.remove(id); // added within this window, server never knew about it
+        scheduleFlush();
+    }
+
+    /**
+     * An exam was changed in place, sent as a delete and add of the same id
+     *
+     * @param exam the exam
+     */
+    void updated(Exam exam) {
+        JsonElement json = MainController.gson.toJsonTree(exam);
+        synchronized (this) {
+            Change change = pending.get(exam.id);
+            if (change == null) pending.put(exam.id, new Change(true, json));
+            else change.added = json; // an exam added in this window stays a plain add
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Number of exams with changes not sent yet
+     *
+     * @return the count
+     */
+    synchronized int pending() {
+        return pending.size();
+    }
+
+    /**
+     * Forget what the server supports, called on every connect
+     */
+    void resetSupport() {
+        connection++;
+        deltaSupported = null;
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled) return;
+        flushScheduled = true;
+        executor.schedule(this::flush, WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush() {
+        List<String> deleted = new ArrayList<>();
+        List<JsonElement> added = new ArrayList<>();
+        synchronized (this) {
+            flushScheduled = false;
+            for (Map.Entry<String, Change> entry : pending.entrySet()) {
+                if (entry.getValue().removed) deleted.add(entry.getKey());
+                if (entry.getValue().added != null) added.add(entry.getValue().added);
+            }
+            pending.clear();
+        }
+        if (deleted.isEmpty() && added.isEmpty()) return;
+        Boolean supported = deltaSupported;
+        if (!clientSocket.isConnected()) {
+            emitLegacy(deleted, added); // queued per exam so they can be deduplicated
+        } else if (supported == null) {
+            int probed = connection;
+            AtomicBoolean settled = new AtomicBoolean();
+            clientSocket.emitWithAck("exams_delta", args -> {
+                if (settled.compareAndSet(false, true) && probed == connection) deltaSupported = true;
+            }, toPayload(deleted, added));
+            executor.schedule(() -> {
+                if (!settled.compareAndSet(false, true)) return;
+                if (probed == connection && clientSocket.isConnected()) {
+                    System.out.println("Server did not acknowledge exams_delta, falling back to per exam events");
+                    deltaSupported = false;
+                }
+                emitLegacy(deleted, added);
+            }, ACK_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } else if (Boolean.TRUE.equals(supported)) {
+            // the connection can drop after the check above, then this is queued
+            clientSocket.emit("exams_delta", "batch-" + ++batch, toPayload(deleted, added));
+        } else emitLegacy(deleted, added);
+    }
+
+    private static String toPayload(List<String> deleted, List<JsonElement> added) {
+        JsonArray deleteArray = new JsonArray();
+        deleted.forEach(deleteArray::add);
+        JsonArray newArray = new JsonArray();
+        added.forEach(newArray::add);
+        JsonObject payload = new JsonObject();
+        payload.add("delete", deleteArray);
+        payload.add("new", newArray);
+        return payload.toString();
+    }
+
+    private void emitLegacy(List<String> deleted, List<JsonElement> added) {
+        for (String id : deleted) clientSocket.emit("delete_exam", id, id);
+        for (JsonElement exam : added)
+            clientSocket.emit("new_exam", exam.getAsJsonObject().get("id").getAsString(), exam.toString());
+    }
+
+    private static final class Change {
+        private final boolean removed;
+        private JsonElement added;
+
+        private Change(boolean removed, JsonElement added) {
+            this.removed = removed;
+            this.added = added;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package app.nush.examclock.connection;
+
+import javafx.application.Platform;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Decoding stage for inbound events, keeps parsing off both the socket thread and the FX thread
+ * <p>
+ * Handlers run in order on a single thread and post what they decoded. Everything posted while the
+ * FX thread is busy is applied together in one {@link Platform#runLater}, so a burst of events costs
+ * one trip to the FX thread instead of one each
+ */
+class InboundStage {
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Inbound Decoder");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Queue<Runnable> decoded = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    /**
+     * Runs a handler on the decoding thread
+     *
+     * @param handler the handler
+     */
+    void execute(Runnable handler) {
+        executor.execute(() -> {
+            try {
+                handler.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Hands a decoded event to the FX thread, only capture immutable values in it
+     *
+     * @param apply what to do on the FX thread
+     */
+    void post(Runnable apply) {
+        decoded.add(apply);
+        if (drainScheduled.compareAndSet(false, true)) Platform.runLater(this::drain);
+    }
+
+    private void drain() {
+        drainScheduled.set(false);
+        Runnable apply;
+        while ((apply = decoded.poll()) != null) {
+            try {
+                apply.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
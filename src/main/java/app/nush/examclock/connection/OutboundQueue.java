@@ -0,0 +1,136 @@
+package app.nush.examclock.connection;
+
+import app.nush.examclock.controllers.MainController;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Events emitted while disconnected, replayed in order on the next connect
+ * <p>
+ * Entries are deduplicated by event and key (exam id, toilet gender...), only the latest one is kept.
+ * A new_exam followed by its delete_exam cancels out, the server never saw that exam.
+ * Bounded, the oldest entry is dropped when full, and written to disk shortly after every change so
+ * a restart while offline loses nothing. Writes happen on a background thread, a burst of changes is written once
+ */
+class OutboundQueue {
+    /**
+     * Max number of queued events
+     */
+    static final int CAPACITY = 256;
+    /**
+     * How long changes are collected before the queue is written
+     */
+    static final long SAVE_DELAY_MILLIS = 200;
+
+    private final Path file;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Outbound Queue");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private boolean saveScheduled;
+
+    /**
+     * Instantiates a new outbound queue, loading whatever was left from last time
+     *
+     * @param file the file to persist to
+     */
+    OutboundQueue(Path file) {
+        this.file = file;
+        try {
+            if (Files.exists(file)) {
+                Entry[] saved = MainController.gson.fromJson(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), Entry[].class);
+                if (saved != null) for (Entry entry : saved) entries.put(entry.event + ":" + entry.key, entry);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Outbound queue unreadable, starting empty! " + e.getMessage());
+        }
+    }
+
+    /**
+     * Queues an event
+     *
+     * @param event the event
+     * @param key   what the event is about, used to deduplicate
+     * @param args  the args
+     */
+    synchronized void offer(String event, String key, Object... args) {
+        if (event.equals("delete_exam") && entries.remove("new_exam:" + key) != null) {
+            persist();
+            return;
+        }
+        String[] strings = new String[args.length];
+        for (int i = 0; i < args.length; i++) strings[i] = String.valueOf(args[i]);
+        String id = event + ":" + key;
+        entries.remove(id); // move to the back
+        entries.put(id, new Entry(event, key, strings));
+        if (entries.size() > CAPACITY) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            System.out.println("Outbound queue full, dropped " + iterator.next().event);
+            iterator.remove();
+        }
+        persist();
+    }
+
+    /**
+     * Takes every queued event, oldest first
+     *
+     * @return the entries
+     */
+    synchronized List<Entry> drain() {
+        List<Entry> drained = new ArrayList<>(entries.values());
+        entries.clear();
+        if (!drained.isEmpty()) persist();
+        return drained;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private void persist() {
+        if (saveScheduled) return;
+        saveScheduled = true;
+        executor.schedule(this::save, SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void save() {
+        String json;
+        synchronized (this) {
+            saveScheduled = false;
+            json = MainController.gson.toJson(entries.values());
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(temp, json.getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("Unable to persist outbound queue! " + e.getMessage());
+        }
+    }
+
+    /**
+     * Queued event
+     */
+    static final class Entry {
+        final String event;
+        final String key;
+        final String[] args;
+
+        Entry(String event, String key, String[] args) {
+            this.event = event;
+            this.key = key;
+            this.args = args;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package app.nush.examclock.connection;
+
+import app.nush.examclock.controllers.PreferenceController;
+import app.nush.examclock.diagnostics.Histogram;
+import app.nush.examclock.diagnostics.Metrics;
+import app.nush.examclock.model.TimeSource;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NTP style offset measurement against the server, over the socket
+ * <p>
+ * A time_sync carries the monotonic send time, the server acknowledges with its own epoch millis.
+ * Assuming the path is symmetric, offset = server - (send + receive) / 2, off by at most half the round trip.
+ * Of the last few samples only the one with the shortest round trip is trusted, queueing delay only ever
+ * makes a round trip longer, so the fastest sample is the most accurate one.
+ * Servers that do not acknowledge time_sync are simply never used as a reference
+ */
+class TimeSync {
+    /**
+     * Samples taken in a burst after connecting, then one every interval
+     */
+    static final int BURST = 4;
+    static final long BURST_SPACING_MILLIS = 500;
+    static final long INTERVAL_MILLIS = 64_000;
+    /**
+     * Samples slower than this say more about the network than about the clock
+     */
+    static final long MAX_ROUND_TRIP_MILLIS = 2000;
+    private static final int WINDOW = 8;
+    private static final Histogram roundTrips = Metrics.histogram("time.sync.rtt");
+
+    private final ClientSocket clientSocket;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Time Sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final long[] offsets = new long[WINDOW];
+    private final long[] delays = new long[WINDOW];
+    private int samples;
+    private ScheduledFuture<?> future;
+
+    /**
+     * Instantiates a new time sync.
+     *
+     * @param clientSocket the client socket
+     */
+    TimeSync(ClientSocket clientSocket) {
+        this.clientSocket = clientSocket;
+        Metrics.gauge("time.offset", TimeSource::getWallOffset);
+        Metrics.gauge("time.slew_pending", TimeSource::getPendingCorrection);
+        PreferenceController.timeSyncProperty.addListener((observable, oldValue, newValue) -> {
+            if (newValue) return;
+            synchronized (this) {
+                samples = 0;
+            }
+            TimeSource.clearReference();
+        });
+    }
+
+    /**
+     * Starts a burst of samples, called on every connect
+     */
+    synchronized void connected() {
+        if (future != null) future.cancel(false);
+        future = executor.scheduleWithFixedDelay(new Runnable() {
+            private int sent;
+
+            @Override
+            public void run() {
+                sample();
+                if (++sent == BURST) {
+                    synchronized (TimeSync.this) {
+                        future.cancel(false);
+                        future = executor.scheduleWithFixedDelay(TimeSync.this::sample, INTERVAL_MILLIS, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                    }
+                }
+            }
+        }, 0, BURST_SPACING_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void sample() {
+        if (!clientSocket.isConnected() || !PreferenceController.timeSyncProperty.get()) return;
+        long sent = TimeSource.monotonic();
+        clientSocket.emitWithAck("time_sync", args -> {
+            long received = TimeSource.monotonic();
+            if (args.length == 0 || !(args[0] instanceof Number)) return;
+            long delay = received - sent;
+            if (delay > MAX_ROUND_TRIP_MILLIS) return;
+            roundTrips.recordMillis(delay);
+            record(((Number) args[0]).longValue() - (sent + received) / 2, delay);
+        }, sent);
+    }
+
+    private synchronized void record(long offset, long delay) {
+        offsets[samples % WINDOW] = offset;
+        delays[samples % WINDOW] = delay;
+        samples++;
+        int best = 0;
+        for (int i = 1; i < Math.min(samples, WINDOW); i++) if (delays[i] < delays[best]) best = i;
+        TimeSource.setReference(offsets[best]);
+    }
+}
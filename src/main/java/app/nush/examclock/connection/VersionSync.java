@@ -0,0 +1,90 @@
+package app.nush.examclock.connection;
+
+import app.nush.examclock.controllers.MainController;
+import app.nush.examclock.model.ExamRepository;
+import com.google.gson.JsonObject;
+import javafx.application.Platform;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Brings the server's copy of the exams up to date after connecting
+ * <p>
+ * The version vector is sent as sync_versions with an ack, the server answers with a sync_request for the exams it needs.
+ * Servers that do not acknowledge sync_versions get the whole list as exam_update instead, like before versions existed,
+ * and until a server has acknowledged it the handshake carries the whole list too, see {@link #isSupported}
+ */
+class VersionSync {
+    /**
+     * How long to wait for the server to acknowledge sync_versions
+     */
+    static final long ACK_TIMEOUT_MILLIS = 3000;
+
+    private final ClientSocket clientSocket;
+    private final ExamRepository repository;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Version Sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * What the server answered last, kept across connects since the handshake is built before the probe
+     */
+    private volatile boolean supported;
+    /**
+     * Bumped on every probe, so a probe from an older connection cannot decide for this one
+     */
+    private volatile int connection;
+
+    /**
+     * Instantiates a new version sync.
+     *
+     * @param clientSocket the client socket
+     * @param repository   the exams
+     */
+    VersionSync(ClientSocket clientSocket, ExamRepository repository) {
+        this.clientSocket = clientSocket;
+        this.repository = repository;
+    }
+
+    /**
+     * If the server acknowledged sync_versions, then the handshake can leave out the exams
+     *
+     * @return if versions are supported
+     */
+    boolean isSupported() {
+        return supported;
+    }
+
+    /**
+     * Sends the version vector, called on every connect. FX thread only
+     * Exams missing from the vector are gone from this clock
+     */
+    void connected() {
+        int probed = ++connection;
+        JsonObject payload = new JsonObject();
+        payload.addProperty("state", repository.getStateVersion());
+        payload.add("versions", MainController.gson.toJsonTree(repository.getVersions()));
+        AtomicBoolean settled = new AtomicBoolean();
+        clientSocket.emitWithAck("sync_versions", args -> {
+            if (settled.compareAndSet(false, true) && probed == connection) decided(true);
+        }, payload.toString());
+        executor.schedule(() -> {
+            if (!settled.compareAndSet(false, true)) return;
+            // lost to a disconnect, the next connect probes again
+            if (probed != connection || !clientSocket.isConnected()) return;
+            System.out.println("Server did not acknowledge sync_versions, sending every exam");
+            decided(false);
+            Platform.runLater(clientSocket::forceExamUpdate);
+        }, ACK_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void decided(boolean supported) {
+        if (this.supported == supported) return;
+        this.supported = supported;
+        Platform.runLater(clientSocket::updateIdentity);
+    }
+}
@@ -1,6 +1,7 @@
 package app.nush.examclock.controllers;
 
 import app.nush.examclock.model.Exam;
+import app.nush.examclock.model.TimeParser;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
@@ -13,8 +14,8 @@ import tornadofx.control.Form;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
+import java.util.Locale;
 
 /**
  * The controller for add exam prompt
@@ -25,15 +26,16 @@ public class AddExamController {
      */
     public static final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy MMM dd");
     /**
-     * The time formatters that will be supported by start and end fields
+     * The time formats supported by start and end fields, parsing is done by {@link TimeParser},
+     * the first one is used for display. English so the am/pm it prints can be read back
      */
     public static final DateTimeFormatter[] timeFormatters = {
-            DateTimeFormatter.ofPattern("hh:mma"),
-            DateTimeFormatter.ofPattern("HH:mm"),
-            DateTimeFormatter.ofPattern("h:mma"),
-            DateTimeFormatter.ofPattern("H:mm"),
-            DateTimeFormatter.ofPattern("hha"),
-            DateTimeFormatter.ofPattern("ha")
+            DateTimeFormatter.ofPattern("hh:mma", Locale.ENGLISH),
+            DateTimeFormatter.ofPattern("HH:mm", Locale.ENGLISH),
+            DateTimeFormatter.ofPattern("h:mma", Locale.ENGLISH),
+            DateTimeFormatter.ofPattern("H:mm", Locale.ENGLISH),
+            DateTimeFormatter.ofPattern("hha", Locale.ENGLISH),
+            DateTimeFormatter.ofPattern("ha", Locale.ENGLISH)
     };
 
     public Form form;
@@ -46,15 +48,6 @@ public class AddExamController {
 
     private MainController mainController;
 
-    private static LocalTime parseTime(String time, int index) {
-        if (index >= timeFormatters.length) throw new DateTimeParseException("No match found", time, 0);
-        try {
-            return LocalTime.parse(time.replace(" ", ""), timeFormatters[index]);
-        } catch (DateTimeParseException e) {
-            return parseTime(time, index + 1);
-        }
-    }
-
     /**
      * Initialize.
      */
@@ -74,27 +67,19 @@ public class AddExamController {
         date_input.setValue(LocalDate.now());
 
         start_time_input.textProperty().addListener((observable, newv, oldv) -> {
-            try {
-                LocalTime parsed = parseTime(start_time_input.getText().toLowerCase(), 0);
-                start_time_input.setUserData(parsed);
-                end_time_input.setText(timeFormatters[0].format(parsed.plusHours(duration_hours.getValue()).plusMinutes(duration_minutes.getValue())));
-            } catch (DateTimeParseException e) {
-//                if (start_time_input.getUserData() != null)
-//                    start_time_input.setText(timeFormatter.format((LocalTime) start_time_input.getUserData()));
-            }
+            LocalTime parsed = TimeParser.parse(start_time_input.getText());
+            if (parsed == null) return; // still typing
+            start_time_input.setUserData(parsed);
+            end_time_input.setText(timeFormatters[0].format(parsed.plusHours(duration_hours.getValue()).plusMinutes(duration_minutes.getValue())));
         });
         end_time_input.textProperty().addListener((observable, newv, oldv) -> {
-            try {
-                LocalTime parsed = parseTime(end_time_input.getText().toLowerCase(), 0);
-                end_time_input.setUserData(parsed);
-                LocalTime start = (LocalTime) start_time_input.getUserData();
-                int minutes = (int) start.until(parsed, ChronoUnit.MINUTES);
-                duration_hours.getValueFactory().setValue(minutes / 60);
-                duration_minutes.getValueFactory().setValue(minutes % 60);
-            } catch (DateTimeParseException e) {
-//                if (end_time_input.getUserData() != null)
-//                    end_time_input.setText(timeFormatter.format((LocalTime) end_time_input.getUserData()));
-            }
+            LocalTime parsed = TimeParser.parse(end_time_input.getText());
+            LocalTime start = (LocalTime) start_time_input.getUserData();
+            if (parsed == null || start == null) return;
+            end_time_input.setUserData(parsed);
+            int minutes = (int) start.until(parsed, ChronoUnit.MINUTES);
+            duration_hours.getValueFactory().setValue(minutes / 60);
+            duration_minutes.getValueFactory().setValue(minutes % 60);
         });
         duration_hours.valueProperty().addListener((observable, oldValue, newValue) -> {
             if (start_time_input.getUserData() == null) return;
@@ -113,8 +98,14 @@ public class AddExamController {
      */
     @FXML
     public void addExam(ActionEvent event) {
+        LocalTime start = TimeParser.parse(start_time_input.getText());
+        LocalTime end = TimeParser.parse(end_time_input.getText());
+        if (start == null || end == null) {
+            new Alert(Alert.AlertType.ERROR, "Invalid " + (start == null ? "start" : "end") + " time!").showAndWait();
+            return;
+        }
         try {
-            Exam exam = new Exam(name_input.getText(), date_input.getValue(), parseTime(start_time_input.getText().toLowerCase(), 0), parseTime(end_time_input.getText().toLowerCase(), 0));
+            Exam exam = new Exam(name_input.getText(), date_input.getValue(), start, end);
             mainController.addExam(exam);
         } catch (Exception e) {
             Alert alert = new Alert(Alert.AlertType.ERROR, e.getMessage());
@@ -1,8 +1,10 @@
 package app.nush.examclock.controllers;
 
 import app.nush.examclock.display.DigitalClock;
-import javafx.beans.binding.Bindings;
+import app.nush.examclock.model.Tick;
 import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.value.ChangeListener;
+import javafx.scene.CacheHint;
 import javafx.scene.Group;
 import javafx.scene.effect.DropShadow;
 import javafx.scene.effect.InnerShadow;
@@ -12,7 +14,6 @@ import javafx.scene.shape.Polygon;
 import javafx.scene.text.Font;
 import javafx.scene.text.Text;
 
-import java.util.Calendar;
 
 /**
  * The Clock controller.
@@ -22,12 +23,26 @@ public class ClockController {
      * Some parameters for the interpolation function
      */
     public static final SimpleDoubleProperty speed = new SimpleDoubleProperty(20);
-    private static final SimpleDoubleProperty min = new SimpleDoubleProperty(Math.pow(2, -speed.get()));
-    private static final SimpleDoubleProperty scale = new SimpleDoubleProperty(1 / (1 - min.get()));
+    /**
+     * Deviation from rest, in fractions of a second tick, below which the second hand counts as still
+     */
+    private static final double MOTION_EPSILON = 0.002;
+    /**
+     * Largest allowed difference between the table and the curve, in fractions of a tick, 1e-4 of 6 degrees is invisible
+     */
+    private static final double TABLE_TOLERANCE = 1e-4;
+    private static final int MIN_TABLE_SIZE = 256;
+    private static final int MAX_TABLE_SIZE = 1 << 16;
+    /**
+     * Curve parameters and its samples over [0, 1], rebuilt when speed changes
+     */
+    private static double min;
+    private static double scale;
+    private static double[] table;
 
     static {
-        scale.bind(Bindings.divide(1, Bindings.subtract(1, min)));
-        min.bind(Bindings.createDoubleBinding(() -> Math.pow(2, -speed.get()), speed));
+        rebuildTable(speed.get());
+        speed.addListener((observable, oldValue, newValue) -> rebuildTable(newValue.doubleValue()));
     }
 
     private final Group parent;
@@ -35,12 +50,14 @@ public class ClockController {
     private final Group hour;
     private final Group minute;
     private final Group second;
-    private final Calendar calendar;
+    private final Polygon secondHand;
     private final DigitalClock digitalClock;
+    private final ChangeListener<Boolean> digitalAboveListener;
+    private final ChangeListener<Boolean> shadowListener;
     /**
      * Second displayed in the last frame, used to reduce unneeded refresh attempts
      */
-    private int lastFrameSeconds = 0;
+    private long lastFrameSecond = -1;
 
     /**
      * Instantiates a new Clock controller.
@@ -60,27 +77,49 @@ public class ClockController {
         this.second = second;
         this.parent = parent;
         this.clockFace = clockFace;
-        calendar = Calendar.getInstance();
+        this.secondHand = secondHand;
         digitalClock = new DigitalClock();
         digitalClock.setLayoutX(-digitalClock.width / 2);
         digitalClock.setLayoutY(60);
-        parent.getChildren().add(1, digitalClock);
+        // mirrors are built after preferences are loaded, so start from the current values
+        parent.getChildren().add(PreferenceController.digitalAboveAnalogProperty.get() ? parent.getChildren().size() : 1, digitalClock);
         createClockLabels();
 
-        PreferenceController.digitalAboveAnalogProperty.addListener((observable, oldValue, newValue) -> {
+        digitalAboveListener = (observable, oldValue, newValue) -> {
             parent.getChildren().remove(digitalClock);
             if (newValue) parent.getChildren().add(digitalClock);
             else parent.getChildren().add(1, digitalClock);
-        });
+        };
+        PreferenceController.digitalAboveAnalogProperty.addListener(digitalAboveListener);
         secondHand.fillProperty().bind(PreferenceController.secondHandColorProperty);
         DropShadow dropShadow = new DropShadow(4, Color.BLACK);
         InnerShadow innerShadow = new InnerShadow();
-        PreferenceController.analogueShadowProperty.addListener((observable, oldValue, newValue) -> {
+        // the face only changes with size, theme or shadow, all of which invalidate the cache by themselves
+        clockFace.setCache(true);
+        clockFace.setCacheHint(CacheHint.QUALITY);
+        shadowListener = (observable, oldValue, newValue) -> {
             clockFace.setEffect(newValue ? innerShadow : null);
             hourHand.setEffect(newValue ? dropShadow : null);
             minuteHand.setEffect(newValue ? dropShadow : null);
             secondHand.setEffect(newValue ? dropShadow : null);
-        });
+            // shadowed hands are kept as bitmaps that are only rotated, instead of running the shadow every frame
+            for (Group hand : new Group[]{hour, minute, second}) {
+                hand.setCache(newValue);
+                hand.setCacheHint(CacheHint.ROTATE);
+            }
+        };
+        PreferenceController.analogueShadowProperty.addListener(shadowListener);
+        if (PreferenceController.analogueShadowProperty.get()) shadowListener.changed(PreferenceController.analogueShadowProperty, false, true);
+    }
+
+    /**
+     * Stops following the settings, call once the clock is no longer shown, like when a mirror closes
+     */
+    public void dispose() {
+        PreferenceController.digitalAboveAnalogProperty.removeListener(digitalAboveListener);
+        PreferenceController.analogueShadowProperty.removeListener(shadowListener);
+        secondHand.fillProperty().unbind();
+        digitalClock.dispose();
     }
 
     /**
@@ -95,16 +134,57 @@ public class ClockController {
      * _|‾
      * When speed is 0, result is not well defined so return original value
      * </p>
+     * Reads the sampled curve, linearly interpolated, see {@link #rebuildTable}
      *
      * @param value the value to interpolate
      * @return the interpolated value
      */
     public static double interpolate(double value) {
-        if (speed.get() == 0) return value;
-        if (value > 1) return Math.floor(value) + interpolate(value % 1);
-        if (value < 0) return Math.ceil(value) - interpolate(-(value % 1));
-        if (value <= 0.5f) return (Math.pow(2, speed.get() * (value * 2 - 1)) - min.get()) * scale.get() / 2;
-        return 1 - (Math.pow(2, -speed.get() * (value * 2 - 1)) - min.get()) * scale.get() / 2;
+        double[] table = ClockController.table;
+        if (table == null) return value;
+        double whole = Math.floor(value);
+        double position = (value - whole) * (table.length - 1);
+        int index = (int) position;
+        if (index >= table.length - 1) return whole + table[table.length - 1];
+        double a = table[index];
+        return whole + a + (table[index + 1] - a) * (position - index);
+    }
+
+    /**
+     * The curve itself, on [0, 1]
+     */
+    static double interpolateExact(double value, double speed, double min, double scale) {
+        if (value <= 0.5) return (Math.pow(2, speed * (value * 2 - 1)) - min) * scale / 2;
+        return 1 - (Math.pow(2, -speed * (value * 2 - 1)) - min) * scale / 2;
+    }
+
+    /**
+     * Samples the curve for a speed, doubling the table until linear interpolation between samples
+     * stays within tolerance of the curve everywhere, checked at every midpoint
+     */
+    private static void rebuildTable(double speed) {
+        if (speed == 0) {
+            table = null;
+            min = 0;
+            scale = 1;
+            return;
+        }
+        double min = Math.pow(2, -speed);
+        double scale = 1 / (1 - min);
+        double[] samples = null;
+        for (int size = MIN_TABLE_SIZE; size <= MAX_TABLE_SIZE; size *= 2) {
+            samples = new double[size + 1];
+            for (int i = 0; i <= size; i++) samples[i] = interpolateExact((double) i / size, speed, min, scale);
+            double error = 0;
+            for (int i = 0; i < size; i++) {
+                double midpoint = interpolateExact((i + 0.5) / size, speed, min, scale);
+                error = Math.max(error, Math.abs((samples[i] + samples[i + 1]) / 2 - midpoint));
+            }
+            if (error <= TABLE_TOLERANCE) break;
+        }
+        ClockController.min = min;
+        ClockController.scale = scale;
+        table = samples;
     }
 
     private void createClockLabels() {
@@ -133,22 +213,53 @@ public class ClockController {
         }
     }
 
+    /**
+     * Half width in millis of the window around each second where the interpolated
+     * second hand visibly moves, 500 means it never rests
+     *
+     * @return the half width
+     */
+    public static long motionHalfWidthMillis() {
+        double speed = ClockController.speed.get();
+        if (speed <= 0) return 500;
+        // for x <= 0.5 interpolate(x) stays under MOTION_EPSILON while 2^(speed * (2x - 1)) < 2 * MOTION_EPSILON / scale + min
+        double u = Math.log(2 * MOTION_EPSILON / scale + min) / Math.log(2) / speed;
+        long halfWidth = (long) Math.ceil(-u / 2 * 1000);
+        return Math.max(0, Math.min(500, halfWidth));
+    }
+
     /**
      * Refresh clock
      * The calculations are questionable but they work so I guess its fine
+     *
+     * @param tick the time to show
+     */
+    public void refresh(Tick tick) {
+        refreshHands(tick);
+        refreshDigital(tick);
+    }
+
+    /**
+     * Refresh the analogue hands, the digital clock is left to {@link #refreshDigital}
+     *
+     * @param tick the time to show
+     */
+    public void refreshHands(Tick tick) {
+        second.setRotate(360d * ((interpolate(tick.second + tick.millis / 1000d - .5) / 60 + 1) % 1)); // the % 1 here for angle out of 360 degrees
+        minute.setRotate(6d * (tick.minute + tick.second / 60d + tick.millis / 60000d));
+        hour.setRotate(30d * (tick.hour + tick.minute / 60d + tick.second / 3600d));
+    }
+
+    /**
+     * Refresh the digital clock, only does anything once a second
+     *
+     * @param tick the time to show
      */
-    public void refresh() {
-        calendar.setTimeInMillis(System.currentTimeMillis());
-        int hours = calendar.get(Calendar.HOUR_OF_DAY);
-        int minutes = calendar.get(Calendar.MINUTE);
-        int seconds = calendar.get(Calendar.SECOND);
-        int millis = calendar.get(Calendar.MILLISECOND);
-        second.setRotate(360d * ((interpolate(seconds + millis / 1000d - .5) / 60 + 1) % 1)); // the % 1 here for angle out of 360 degrees
-        minute.setRotate(6d * (minutes + seconds / 60d + millis / 60000d));
-        hour.setRotate(30d * (hours + minutes / 60d + seconds / 3600d));
-        if (lastFrameSeconds != seconds) {
-            lastFrameSeconds = seconds;
-            digitalClock.refreshClocks(hours, minutes, seconds);
+    public void refreshDigital(Tick tick) {
+        long second = tick.epochMillis / 1000;
+        if (lastFrameSecond != second) {
+            lastFrameSecond = second;
+            digitalClock.refreshClocks(tick.hour, tick.minute, tick.second);
         }
     }
 
@@ -162,6 +273,7 @@ public class ClockController {
         double radius = 0.95 * Math.min(width / 2, height / 2);
         parent.setScaleX(radius / 200);
         parent.setScaleY(radius / 200);
+        digitalClock.setRenderScale(radius / 200);
         parent.setLayoutX(width / 2);
         parent.setLayoutY(height / 2);
     }
@@ -62,7 +62,6 @@ public class ConnectionController {
      */
     public void setMainController(MainController mainController) {
         this.mainController = mainController;
-        mainController.setConnectionController(this);
-        socket = new ClientSocket(mainController);
+        socket = mainController.getClientSocket();
     }
 }
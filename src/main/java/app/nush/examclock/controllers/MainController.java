@@ -2,28 +2,45 @@ package app.nush.examclock.controllers;
 
 import app.nush.examclock.ExamClock;
 import app.nush.examclock.Version;
+import app.nush.examclock.connection.ClientSocket;
+import app.nush.examclock.diagnostics.Counter;
+import app.nush.examclock.diagnostics.DiagnosticsStage;
+import app.nush.examclock.diagnostics.Histogram;
+import app.nush.examclock.diagnostics.Metrics;
+import app.nush.examclock.diagnostics.MetricsServer;
+import app.nush.examclock.display.AdaptiveRefreshScheduler;
 import app.nush.examclock.display.ExamHolder;
+import app.nush.examclock.display.ExamHolderPool;
+import app.nush.examclock.display.ExamListCell;
+import app.nush.examclock.display.FixedRateScheduler;
+import app.nush.examclock.display.RefreshScheduler;
+import app.nush.examclock.display.TaskProgressStage;
 import app.nush.examclock.model.Exam;
+import app.nush.examclock.model.ExamExporter;
+import app.nush.examclock.model.ExamImporter;
+import app.nush.examclock.model.ExamJournal;
+import app.nush.examclock.model.ExamRepository;
+import app.nush.examclock.model.Tick;
+import app.nush.examclock.model.TimeSource;
+import app.nush.examclock.model.TimetableImport;
+import app.nush.examclock.model.TimetableParser;
 import app.nush.examclock.updater.Updater;
 import com.google.gson.Gson;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
-import javafx.application.Platform;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.collections.FXCollections;
-import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Group;
-import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.effect.ColorAdjust;
 import javafx.scene.image.ImageView;
+import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
@@ -31,19 +48,16 @@ import javafx.scene.shape.Polygon;
 import javafx.scene.text.Font;
 import javafx.stage.FileChooser;
 import javafx.stage.Modality;
+import javafx.stage.Screen;
 import javafx.stage.Stage;
 import javafx.stage.WindowEvent;
-import javafx.util.Duration;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.LocalTime;
-import java.time.temporal.ChronoUnit;
-import java.util.List;
-import java.util.Stack;
+import java.util.*;
 import java.util.prefs.Preferences;
 
 /**
@@ -53,10 +67,32 @@ public class MainController {
     public static final Gson gson = new Gson();
     private static final ColorAdjust redEffect = new ColorAdjust(0, 1, 0.5, 0);
     private static final ColorAdjust greenEffect = new ColorAdjust(0.5, 1, 0.5, 0);
+    /**
+     * A frame slower than this misses a 60 Hz vsync
+     */
+    private static final long SLOW_FRAME_NANOS = 16_666_667;
+    /**
+     * A second refreshed later than this after its boundary is visibly late
+     */
+    private static final long LATE_SECOND_MILLIS = 250;
+    /**
+     * Roughly the most rows a tall screen shows, more holders than that are never on screen at once
+     */
+    private static final int EXAM_HOLDER_PREWARM_LIMIT = 40;
+    private static final Histogram pulseTime = Metrics.histogram("frame.pulse");
+    private static final Histogram secondTime = Metrics.histogram("frame.second");
+    private static final Histogram secondLateness = Metrics.histogram("second.lateness");
+    private static final Counter slowFrames = Metrics.counter("frame.slow");
+    private static final Counter lateSeconds = Metrics.counter("second.late");
+    private static final Counter missedSeconds = Metrics.counter("second.missed");
     /**
      * Exams, observable so changes are reflected across entire program
      */
     public ObservableList<Exam> exams;
+    /**
+     * Exams indexed by id, wraps {@link #exams}
+     */
+    public ExamRepository examRepository;
     /**
      * if female toilet is occupied.
      */
@@ -96,17 +132,13 @@ public class MainController {
     @FXML
     private VBox rightPane;
     @FXML
-    private VBox examList;
+    private ListView<Exam> examList;
     @FXML
     private HBox toiletIconParent;
     @FXML
     private ImageView toiletMale;
     @FXML
     private ImageView toiletFemale;
-    /**
-     * The Selected exam holder.
-     */
-    public ExamHolder selectedExamHolder;
     private PreferenceController preferenceController;
     /**
      * The Preferences.
@@ -118,11 +150,29 @@ public class MainController {
      * Link to instances of other controllers
      */
     private ClockController clockController;
-    private Timeline timeline;
+    private RefreshScheduler scheduler;
     private AddExamController addExamController;
     private FileChooser fileChooser;
-    private ConnectionController connectionController;
-    private Stack<ExamHolder> examHolderPool;
+    private FileChooser.ExtensionFilter timetableFilter;
+    private ClientSocket clientSocket;
+    private ExamHolderPool examHolderPool;
+    /**
+     * Extra windows, they are handed the same ticks as this one
+     */
+    private final List<MirrorController> mirrors = new ArrayList<>();
+    private DiagnosticsStage diagnosticsStage;
+    /**
+     * Where exams are saved, null if it could not be opened, then preferences are used like before
+     */
+    private ExamJournal journal;
+    private boolean lowPower;
+    private long lastSecond;
+    /**
+     * Copies of the gauges, the metrics endpoint reads them on its own thread while the lists only change on the FX thread
+     */
+    private volatile int examCount;
+    private volatile int renderedExams;
+    private volatile int mirrorCount;
 
     /**
      * Instantiates a new Main controller.
@@ -151,20 +201,18 @@ public class MainController {
     public void initialize() throws IOException {
         System.out.println("initialize");
         exams = FXCollections.observableArrayList();
-        exams.addListener((ListChangeListener<Exam>) c -> {
-            while (c.next()) {
-                List<? extends Exam> removed = c.getRemoved();
-                examList.getChildren().removeIf(node -> {
-                    ExamHolder examHolder = (ExamHolder) node;
-                    boolean contains = removed.contains(examHolder.getExam());
-                    if (contains) examHolderPool.push(examHolder.reset());
-                    return contains;
-                });
-                for (int i = c.getFrom(); i < c.getTo(); i++)
-                    examList.getChildren().add(i, examHolderPool.empty() ? new ExamHolder(this, c.getList().get(i)) : examHolderPool.pop().setExam(c.getList().get(i)));
-            }
-        });
-        examHolderPool = new Stack<>();
+        examRepository = new ExamRepository(exams);
+        examHolderPool = new ExamHolderPool(this);
+        examList.setItems(exams);
+        examList.setCellFactory(listView -> new ExamListCell(examHolderPool));
+        examList.setPlaceholder(new Label("No exams"));
+        examRepository.addUpdateListener(examHolderPool::refresh);
+        try {
+            journal = ExamJournal.open(ExamClock.getDataDirectory());
+            journal.attach(examRepository);
+        } catch (IOException e) {
+            System.out.println("Unable to open exam journal, exams are only saved on request! " + e.getMessage());
+        }
         preferences = Preferences.userNodeForPackage(MainController.class);
         preferences.put("clockID", PreferenceController.clockID = preferences.get("clockID", generateClockID())); // set if unset
 
@@ -198,48 +246,174 @@ public class MainController {
 
         fileChooser = new FileChooser();
         fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("JSON files (*.json)", "*.json"));
-
-        initAddExamStage();
-        initConnectionStage();
+        timetableFilter = new FileChooser.ExtensionFilter("Timetables (*.csv, *.ics)", "*.csv", "*.txt", "*.ics", "*.ical");
 
         preferenceController.initPreferences(); // load preferences after adding listeners
+        Metrics.gauge("exams", () -> examCount);
+        Metrics.gauge("exams.rendered", () -> renderedExams);
+        Metrics.gauge("mirrors", () -> mirrorCount);
+        if (PreferenceController.metricsEndpointProperty.get()) MetricsServer.start();
+        PreferenceController.metricsEndpointProperty.addListener((observable, oldValue, newValue) -> {
+            if (newValue) MetricsServer.start();
+            else MetricsServer.stop();
+        });
         loadExams(null); // load exams from disk
-        Updater.asyncUpdate(); // check updates
+        examHolderPool.prewarm(Math.min(exams.size(), EXAM_HOLDER_PREWARM_LIMIT));
 
         // Start main render loop
-        timeline = new Timeline();
-        timeline.setCycleCount(Timeline.INDEFINITE);
-        timeline.getKeyFrames().add(new KeyFrame(Duration.millis(16), e -> refresh()));
-        play();
+        setScheduler(PreferenceController.adaptiveRefreshProperty.get());
+        PreferenceController.adaptiveRefreshProperty.addListener((observable, oldValue, newValue) -> setScheduler(newValue));
+    }
+
+    /**
+     * Work that can wait until the clock is on screen, connecting to the server and checking for updates
+     */
+    public void startDeferred() {
+        getClientSocket();
+        Updater.asyncUpdate(); // check updates
     }
 
     /**
      * Gets exam holder by exam
      *
      * @param exam the exam
-     * @return the exam holder
+     * @return the exam holder, null if the exam is not on screen
      */
     public ExamHolder getExamHolder(Exam exam) {
-        for (Node child : examList.getChildren()) {
-            ExamHolder holder = (ExamHolder) child;
-            if (holder.getExam().id.equals(exam.id)) {
-                return holder;
+        return examHolderPool.get(exam);
+    }
+
+    /**
+     * Opens a mirror window, full screen on the first screen no other window is on yet
+     *
+     * @param spec the layout and scale
+     * @throws IOException if the mirror could not be loaded
+     */
+    public void openMirror(MirrorController.Spec spec) throws IOException {
+        Screen free = null;
+        for (Screen screen : Screen.getScreens()) {
+            if (screen.equals(Screen.getPrimary()) || isOnScreen(stage, screen)) continue;
+            boolean used = false;
+            for (MirrorController mirror : mirrors) used |= isOnScreen(mirror.getStage(), screen);
+            if (!used) {
+                free = screen;
+                break;
             }
         }
-        return null;
+        MirrorController.open(this, spec, free);
+    }
+
+    private static boolean isOnScreen(Stage stage, Screen screen) {
+        return stage.isShowing() && screen.getVisualBounds().contains(stage.getX() + stage.getWidth() / 2, stage.getY() + stage.getHeight() / 2);
+    }
+
+    /**
+     * Starts handing ticks to a mirror, called when it opens
+     *
+     * @param mirror the mirror
+     */
+    void addMirror(MirrorController mirror) {
+        mirrors.add(mirror);
+        updateLowPower();
+    }
+
+    /**
+     * Stops handing ticks to a mirror, called when it closes
+     *
+     * @param mirror the mirror
+     */
+    void removeMirror(MirrorController mirror) {
+        mirrors.remove(mirror);
+        updateLowPower();
+    }
+
+    /**
+     * Gets the exam selected in the list
+     *
+     * @return the exam, null if none
+     */
+    public Exam getSelectedExam() {
+        return examList.getSelectionModel().getSelectedItem();
     }
 
     /**
      * Refresh display
      */
     public void refresh() {
-        clockController.refresh();
-        LocalDate today = LocalDate.now();
-        LocalTime now = LocalTime.now();
-        for (Node node : examList.getChildren()) {
-            ExamHolder examHolder = (ExamHolder) node;
-            examHolder.update(today, now);
+        Tick tick = TimeSource.tick();
+        refreshHands(tick);
+        refreshSecond(tick);
+    }
+
+    /**
+     * Refresh the parts that move smoothly, runs every pulse
+     *
+     * @param tick the time to show
+     */
+    public void refreshHands(Tick tick) {
+        long start = System.nanoTime();
+        clockController.refreshHands(tick);
+        for (int i = 0; i < mirrors.size(); i++) mirrors.get(i).refreshHands(tick);
+        long elapsed = System.nanoTime() - start;
+        pulseTime.record(elapsed);
+        if (elapsed > SLOW_FRAME_NANOS) slowFrames.increment();
+    }
+
+    /**
+     * Refresh the parts that change once a second
+     *
+     * @param tick the time to show
+     */
+    public void refreshSecond(Tick tick) {
+        long start = System.nanoTime();
+        clockController.refreshDigital(tick);
+        examHolderPool.update(tick);
+        for (int i = 0; i < mirrors.size(); i++) mirrors.get(i).refreshSecond(tick);
+        long elapsed = System.nanoTime() - start;
+        secondTime.record(elapsed);
+        if (elapsed > SLOW_FRAME_NANOS) slowFrames.increment();
+        recordSecond(tick.epochMillis);
+        publishGauges();
+    }
+
+    /**
+     * Copies the counts for the metrics endpoint, FX thread only
+     */
+    private void publishGauges() {
+        int rendered = examHolderPool.size();
+        for (int i = 0; i < mirrors.size(); i++) rendered += mirrors.get(i).getRenderedExams();
+        examCount = exams.size();
+        renderedExams = rendered;
+        mirrorCount = mirrors.size();
+    }
+
+    /**
+     * Tracks how late each second is shown, and whether any were skipped entirely.
+     * Low power only refreshes every few seconds, nobody is looking then
+     */
+    private void recordSecond(long now) {
+        long second = now / 1000;
+        if (!lowPower) {
+            long lateness = now % 1000;
+            secondLateness.recordMillis(lateness);
+            if (lateness > LATE_SECOND_MILLIS) lateSeconds.increment();
+            if (lastSecond != 0 && second - lastSecond > 1) missedSeconds.add(second - lastSecond - 1);
         }
+        lastSecond = second;
+    }
+
+    /**
+     * Swaps the render loop scheduler
+     *
+     * @param adaptive if the adaptive scheduler should be used
+     */
+    private void setScheduler(boolean adaptive) {
+        if (scheduler != null) scheduler.dispose();
+        scheduler = adaptive ? new AdaptiveRefreshScheduler(ClockController::motionHalfWidthMillis) : new FixedRateScheduler();
+        scheduler.setOnPulse(this::refreshHands);
+        scheduler.setOnSecond(this::refreshSecond);
+        if (stage != null) scheduler.setLowPower(lowPower);
+        play();
     }
 
     /**
@@ -248,13 +422,37 @@ public class MainController {
      * @param exam the exam
      */
     public void showAddExamStage(Exam exam) {
+        getAddExamStage();
         addExamController.name_input.setText(exam.name);
-        addExamController.date_input.setValue(LocalDate.parse(exam.date));
-        addExamController.start_time_input.setText(AddExamController.timeFormatters[0].format(LocalTime.parse(exam.start)));
-        addExamController.end_time_input.setText(AddExamController.timeFormatters[0].format(LocalTime.parse(exam.end)));
+        addExamController.date_input.setValue(exam.getDateObj());
+        addExamController.start_time_input.setText(AddExamController.timeFormatters[0].format(exam.getStartTimeObj()));
+        addExamController.end_time_input.setText(AddExamController.timeFormatters[0].format(exam.getEndTimeObj()));
         addExamStage.show();
     }
 
+    /**
+     * Gets the add exam stage, built the first time it is needed
+     *
+     * @return the stage
+     */
+    private Stage getAddExamStage() {
+        if (addExamStage == null) try {
+            initAddExamStage();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return addExamStage;
+    }
+
+    private Stage getConnectStage() {
+        if (connectStage == null) try {
+            initConnectionStage();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return connectStage;
+    }
+
     private void initAddExamStage() throws IOException {
         FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/fxml_add_exam.fxml"));
         Scene scene = new Scene(fxmlLoader.load());
@@ -291,71 +489,72 @@ public class MainController {
 
     @FXML
     public void addExamClicked(ActionEvent event) {
-        addExamStage.show();
+        getAddExamStage().show();
     }
 
     @FXML
     public void editExamClicked(ActionEvent event) {
-        if (selectedExamHolder != null) selectedExamHolder.onEdit(event);
+        Exam exam = getSelectedExam();
+        if (exam != null) {
+            showAddExamStage(exam);
+            exams.remove(exam);
+        }
     }
 
     @FXML
     public void deleteExamClicked(ActionEvent event) {
-        if (selectedExamHolder != null) selectedExamHolder.onDelete(event);
+        Exam exam = getSelectedExam();
+        if (exam != null) exams.remove(exam);
     }
 
     @FXML
     public void startSelectedExams(ActionEvent event) {
-        if (selectedExamHolder != null) {
-            LocalDate newDate = LocalDate.now();
-            LocalTime newStartTime = LocalTime.now().withNano(0).plusSeconds(1);
-            Exam exam = selectedExamHolder.getExam();
-            long seconds = ChronoUnit.SECONDS.between(exam.getStartTimeObj(), exam.getEndTimeObj());
-            exam.date = newDate.toString();
-            exam.start = newStartTime.toString();
-            exam.end = newStartTime.plusSeconds(seconds).toString();
-            selectedExamHolder.setExam(selectedExamHolder.getExam());
+        Exam exam = getSelectedExam();
+        if (exam != null) {
+            Tick tick = TimeSource.tick();
+            LocalDate newDate = tick.getDate();
+            LocalTime newStartTime = tick.getTime().plusSeconds(1);
+            long seconds = exam.getTimeline().getDurationSeconds();
+            exam.setTimes(newDate, newStartTime, newStartTime.plusSeconds(seconds));
+            examRepository.touch(exam);
         }
     }
 
     @FXML
     public void stopSelectedExams(ActionEvent event) {
-        if (selectedExamHolder != null) {
-            LocalDate newDate = LocalDate.now();
-            LocalTime newEndTime = LocalTime.now().withNano(0);
-            Exam exam = selectedExamHolder.getExam();
-            long seconds = ChronoUnit.SECONDS.between(exam.getStartTimeObj(), exam.getEndTimeObj());
-            exam.date = newDate.toString();
-            exam.start = newEndTime.minusSeconds(seconds).toString();
-            exam.end = newEndTime.toString();
-            selectedExamHolder.setExam(selectedExamHolder.getExam());
+        Exam exam = getSelectedExam();
+        if (exam != null) {
+            Tick tick = TimeSource.tick();
+            LocalDate newDate = tick.getDate();
+            LocalTime newEndTime = tick.getTime();
+            long seconds = exam.getTimeline().getDurationSeconds();
+            exam.setTimes(newDate, newEndTime.minusSeconds(seconds), newEndTime);
+            examRepository.touch(exam);
         }
     }
 
     @FXML
     public void startAllExams(ActionEvent event) {
-        LocalDate newDate = LocalDate.now();
-        LocalTime newStartTime = LocalTime.now().withNano(0).plusSeconds(1);
+        Tick tick = TimeSource.tick();
+        LocalDate newDate = tick.getDate();
+        LocalTime newStartTime = tick.getTime().plusSeconds(1);
         exams.forEach(exam -> {
-            long seconds = ChronoUnit.SECONDS.between(exam.getStartTimeObj(), exam.getEndTimeObj());
-            exam.date = newDate.toString();
-            exam.start = newStartTime.toString();
-            exam.end = newStartTime.plusSeconds(seconds).toString();
+            long seconds = exam.getTimeline().getDurationSeconds();
+            exam.setTimes(newDate, newStartTime, newStartTime.plusSeconds(seconds));
+            examRepository.touch(exam);
         });
-        examList.getChildren().forEach(node -> Platform.runLater(() -> ((ExamHolder) node).setExam(((ExamHolder) node).getExam())));
     }
 
     @FXML
     public void stopAllExams(ActionEvent event) {
-        LocalDate newDate = LocalDate.now();
-        LocalTime newEndTime = LocalTime.now().withNano(0);
+        Tick tick = TimeSource.tick();
+        LocalDate newDate = tick.getDate();
+        LocalTime newEndTime = tick.getTime();
         exams.forEach(exam -> {
-            long seconds = ChronoUnit.SECONDS.between(exam.getStartTimeObj(), exam.getEndTimeObj());
-            exam.date = newDate.toString();
-            exam.start = newEndTime.minusSeconds(seconds).toString();
-            exam.end = newEndTime.toString();
+            long seconds = exam.getTimeline().getDurationSeconds();
+            exam.setTimes(newDate, newEndTime.minusSeconds(seconds), newEndTime);
+            examRepository.touch(exam);
         });
-        examList.getChildren().forEach(node -> ((ExamHolder) node).setExam(((ExamHolder) node).getExam()));
     }
 
     @FXML
@@ -368,16 +567,35 @@ public class MainController {
         }
     }
 
+    /**
+     * Every change is already in the journal, saving just compacts it
+     */
     @FXML
     public void saveExams(ActionEvent event) {
-        preferences.put("exams", gson.toJson(exams));
+        if (journal != null) journal.compact(examRepository.getStateVersion());
+        else {
+            preferences.put("exams", gson.toJson(exams));
+            preferences.putLong("stateVersion", examRepository.getStateVersion());
+        }
     }
 
+    /**
+     * Loads exams from the journal, exams saved in preferences by older versions are moved into it
+     */
     @FXML
     public void loadExams(ActionEvent event) {
+        if (journal != null && !journal.isEmpty()) {
+            journal.replayInto(examRepository);
+            return;
+        }
         String examsStr = preferences.get("exams", null);
         if (examsStr != null) try {
-            exams.addAll(gson.fromJson(examsStr, Exam[].class));
+            examRepository.setStateVersion(preferences.getLong("stateVersion", 0));
+            examRepository.load(Arrays.asList(gson.fromJson(examsStr, Exam[].class))); // journaled as they are added
+            if (journal != null) {
+                journal.compact(examRepository.getStateVersion());
+                preferences.remove("exams");
+            }
         } catch (Exception e) {
             System.out.println("Version incompatibility, skipped exam!");
         }
@@ -390,36 +608,136 @@ public class MainController {
 
     @FXML
     public void showConnection(ActionEvent event) {
-        connectStage.show();
+        getConnectStage().show();
     }
 
+    /**
+     * Replaces the exams with those in a file, read in the background and swapped in at once.
+     * A file that is cut short only replaces the exams if the user agrees.
+     * CSV and iCalendar timetables are added to the exams instead
+     */
     @FXML
     public void importExams(ActionEvent actionEvent) {
-        File file = fileChooser.showOpenDialog(stage);
-        if (file == null) return;
+        fileChooser.getExtensionFilters().add(timetableFilter);
+        File file;
         try {
-            String str = new String(Files.readAllBytes(Paths.get(file.toURI())));
-            System.out.println("Read from File\n" + str);
-            exams.clear();
-            try {
-                exams.addAll(gson.fromJson(str, Exam[].class));
-            } catch (Exception e) {
-                System.out.println("Version incompatibility, skipped exam!");
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+            file = fileChooser.showOpenDialog(stage);
+        } finally {
+            fileChooser.getExtensionFilters().remove(timetableFilter);
         }
+        if (file == null) return;
+        TimetableParser parser = TimetableParser.forFile(file.getName());
+        if (parser != null) {
+            importTimetable(file, parser);
+            return;
+        }
+        List<Exam> read = new ArrayList<>();
+        Task<ExamImporter.Result> task = new Task<ExamImporter.Result>() {
+            @Override
+            protected ExamImporter.Result call() throws Exception {
+                updateMessage("Reading " + file.getName());
+                // nothing is replaced until the whole file was read
+                return ExamImporter.read(file.toPath(), batch -> {
+                    read.addAll(batch);
+                    updateMessage(read.size() + " exams read");
+                }, fraction -> updateProgress(fraction, 1));
+            }
+        };
+        task.setOnSucceeded(e -> {
+            ExamImporter.Result result = task.getValue();
+            System.out.println("Read " + result.imported + " exams, skipped " + result.skipped);
+            if (result.error != null) {
+                Alert partial = new Alert(Alert.AlertType.CONFIRMATION, result.error, ButtonType.NO, ButtonType.YES);
+                partial.setHeaderText("The file is cut short, replace the exams with the " + result.imported + " that could be read?");
+                if (partial.showAndWait().orElse(ButtonType.NO) == ButtonType.YES) examRepository.setAll(read);
+                return;
+            }
+            if (result.imported > 0 || result.skipped == 0) examRepository.setAll(read); // not with nothing but bad records
+            if (result.skipped == 0) return;
+            StringBuilder details = new StringBuilder();
+            for (String problem : result.problems) details.append(problem).append('\n');
+            if (result.skipped > result.problems.size())
+                details.append("and ").append(result.skipped - result.problems.size()).append(" more");
+            Alert alert = new Alert(Alert.AlertType.WARNING, details.toString());
+            alert.setHeaderText("Imported " + result.imported + " exams, skipped " + result.skipped);
+            alert.showAndWait();
+        });
+        task.setOnFailed(e -> new Alert(Alert.AlertType.ERROR, "Unable to import! " + task.getException().getMessage()).showAndWait());
+        new TaskProgressStage(stage, "Import", task).show();
+        new Thread(task, "Exam Import").start();
     }
 
+    /**
+     * Asks which venue and date to keep, then adds the timetable's exams in one change
+     */
+    private void importTimetable(File file, TimetableParser parser) {
+        TextField venueField = new TextField();
+        venueField.setPromptText("Every venue");
+        DatePicker datePicker = new DatePicker();
+        datePicker.setPromptText("Every date");
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.addRow(0, new Label("Venue"), venueField);
+        grid.addRow(1, new Label("Date"), datePicker);
+        Alert filters = new Alert(Alert.AlertType.CONFIRMATION, null, ButtonType.CANCEL, ButtonType.OK);
+        filters.setHeaderText("Import " + file.getName());
+        filters.getDialogPane().setContent(grid);
+        if (filters.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) return;
+
+        TimetableImport timetableImport = new TimetableImport();
+        String venue = venueField.getText().trim();
+        timetableImport.venue = venue.isEmpty() ? null : venue;
+        timetableImport.date = datePicker.getValue();
+        Set<String> existingIds = new HashSet<>(examRepository.getIds());
+        Task<TimetableImport.Result> task = new Task<TimetableImport.Result>() {
+            @Override
+            protected TimetableImport.Result call() throws Exception {
+                updateMessage("Reading " + file.getName());
+                return timetableImport.run(file.toPath(), parser, existingIds);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            TimetableImport.Result result = task.getValue();
+            examRepository.addAll(result.exams);
+            System.out.println("Imported " + result.exams.size() + " exams from " + file.getName());
+            StringBuilder details = new StringBuilder();
+            if (result.duplicates > 0) details.append(result.duplicates).append(" already added\n");
+            if (result.filtered > 0) details.append(result.filtered).append(" for another venue or date\n");
+            if (result.skipped > 0) details.append(result.skipped).append(" skipped\n");
+            for (String problem : result.problems) details.append(problem).append('\n');
+            if (result.skipped > result.problems.size())
+                details.append("and ").append(result.skipped - result.problems.size()).append(" more");
+            Alert alert = new Alert(result.skipped == 0 ? Alert.AlertType.INFORMATION : Alert.AlertType.WARNING, details.toString());
+            alert.setHeaderText("Added " + result.exams.size() + " exams");
+            alert.showAndWait();
+        });
+        task.setOnFailed(e -> new Alert(Alert.AlertType.ERROR, "Unable to import! " + task.getException().getMessage()).showAndWait());
+        new TaskProgressStage(stage, "Import", task).show();
+        new Thread(task, "Timetable Import").start();
+    }
+
+    /**
+     * Writes the exams to a file in the background
+     */
     @FXML
     public void exportExams(ActionEvent actionEvent) {
         File file = fileChooser.showSaveDialog(stage);
         if (file == null) return;
-        try {
-            Files.write(Paths.get(file.toURI()), gson.toJson(exams).getBytes());
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        List<Exam> snapshot = new ArrayList<>(exams);
+        Task<Void> task = new Task<Void>() {
+            @Override
+            protected Void call() throws Exception {
+                ExamExporter.write(file.toPath(), snapshot, written -> {
+                    updateMessage(written + " of " + snapshot.size() + " exams written");
+                    updateProgress(written, snapshot.size());
+                });
+                return null;
+            }
+        };
+        task.setOnFailed(e -> new Alert(Alert.AlertType.ERROR, "Unable to export! " + task.getException().getMessage()).showAndWait());
+        new TaskProgressStage(stage, "Export", task).show();
+        new Thread(task, "Exam Export").start();
     }
 
     @FXML
@@ -469,26 +787,62 @@ public class MainController {
 
     public void setStage(Stage stage) {
         this.stage = stage;
+        stage.iconifiedProperty().addListener((observable, oldValue, newValue) -> updateLowPower());
+        stage.showingProperty().addListener((observable, oldValue, newValue) -> updateLowPower());
+        updateLowPower();
+    }
+
+    /**
+     * Low power only once no window, mirrors included, is on screen
+     */
+    void updateLowPower() {
+        if (stage == null) return;
+        boolean lowPower = stage.isIconified() || !stage.isShowing();
+        for (MirrorController mirror : mirrors)
+            lowPower &= mirror.getStage().isIconified() || !mirror.getStage().isShowing();
+        if (lowPower == this.lowPower) return;
+        this.lowPower = lowPower;
+        lastSecond = 0; // the gap while hidden is not a miss
+        scheduler.setLowPower(lowPower);
+    }
+
+    /**
+     * Shows the diagnostics pane, no menu item, only reachable by shortcut
+     */
+    public void showDiagnostics() {
+        if (diagnosticsStage == null) {
+            diagnosticsStage = new DiagnosticsStage();
+            diagnosticsStage.getScene().getStylesheets().addAll("/theme.css", PreferenceController.nightMode.get() ? "/theme.dark.css" : "/theme.light.css");
+        }
+        diagnosticsStage.show();
+        diagnosticsStage.toFront();
     }
 
     public void onClose(WindowEvent event) {
         stop();
-        connectionController.onClose(event);
+        MetricsServer.stop();
+        if (journal != null) journal.close();
+        if (clientSocket != null) clientSocket.getSocket().close();
     }
 
     /**
      * Play clock animation, updates etc
      */
     public void play() {
-        timeline.stop();
-        timeline.play();
+        scheduler.play();
     }
 
     public void stop() {
-        timeline.stop();
+        scheduler.stop();
     }
 
-    public void setConnectionController(ConnectionController connectionController) {
-        this.connectionController = connectionController;
+    /**
+     * Gets the client socket, connects if that has not happened yet
+     *
+     * @return the client socket
+     */
+    public ClientSocket getClientSocket() {
+        if (clientSocket == null) clientSocket = new ClientSocket(this);
+        return clientSocket;
     }
 }
@@ -0,0 +1,267 @@
+package app.nush.examclock.controllers;
+
+import app.nush.examclock.display.ExamHolder;
+import app.nush.examclock.display.ExamHolderPool;
+import app.nush.examclock.display.ExamListCell;
+import app.nush.examclock.model.Exam;
+import app.nush.examclock.model.Tick;
+import javafx.beans.value.ChangeListener;
+import javafx.fxml.FXML;
+import javafx.fxml.FXMLLoader;
+import javafx.geometry.Orientation;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.Group;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.SplitPane;
+import javafx.scene.effect.ColorAdjust;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+import javafx.scene.shape.Polygon;
+import javafx.stage.Screen;
+import javafx.stage.Stage;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * An extra window showing the clock, for projectors and hall screens
+ * <p>
+ * Owns nothing but its nodes, the exams, the render loop and the connection belong to the {@link MainController},
+ * which hands every tick to its mirrors. Each mirror has its own layout and scale
+ */
+public class MirrorController {
+    private static final ColorAdjust redEffect = new ColorAdjust(0, 1, 0.5, 0);
+    private static final ColorAdjust greenEffect = new ColorAdjust(0.5, 1, 0.5, 0);
+    @FXML
+    private SplitPane root;
+    @FXML
+    private StackPane clockRoot;
+    @FXML
+    private Group clockPane;
+    @FXML
+    private Group clockFace;
+    @FXML
+    private Group hourGroup;
+    @FXML
+    private Polygon hourHand;
+    @FXML
+    private Group minuteGroup;
+    @FXML
+    private Polygon minuteHand;
+    @FXML
+    private Group secondGroup;
+    @FXML
+    private Polygon secondHand;
+    @FXML
+    private VBox rightPane;
+    @FXML
+    private ListView<Exam> examList;
+    @FXML
+    private HBox toiletIconParent;
+    @FXML
+    private ImageView toiletMale;
+    @FXML
+    private ImageView toiletFemale;
+
+    private MainController mainController;
+    private ClockController clockController;
+    private ExamHolderPool examHolderPool;
+    private Layout layout;
+    private double scale;
+    private Stage stage;
+    private final Consumer<Exam> updateListener = exam -> examHolderPool.refresh(exam);
+    private final ChangeListener<Number> fontScaleListener = (observable, oldValue, newValue) -> applyFontScale();
+    private final ChangeListener<Boolean> nightModeListener = (observable, oldValue, newValue) -> applyTheme();
+    private final ChangeListener<Boolean> toiletListener = (observable, oldValue, newValue) -> applyToilets();
+
+    /**
+     * Opens a mirror window
+     *
+     * @param mainController the main controller, whose exams and ticks are shown
+     * @param spec           the layout and scale, see {@link Spec#parse}
+     * @param screen         the screen to fill, null for a normal window
+     * @return the mirror, already showing
+     * @throws IOException if the fxml could not be loaded
+     */
+    public static MirrorController open(MainController mainController, Spec spec, Screen screen) throws IOException {
+        FXMLLoader loader = new FXMLLoader(MirrorController.class.getResource("/fxml_mirror.fxml"));
+        Scene scene = new Scene(loader.load());
+        MirrorController mirror = loader.getController();
+        mirror.stage = new Stage();
+        mirror.stage.setScene(scene);
+        mirror.stage.setTitle("Exam Clock - " + spec.layout.name().toLowerCase(Locale.ROOT));
+        mirror.setup(mainController, spec.layout, spec.scale);
+        if (screen != null) {
+            Rectangle2D bounds = screen.getVisualBounds();
+            mirror.stage.setX(bounds.getMinX());
+            mirror.stage.setY(bounds.getMinY());
+            mirror.stage.setWidth(bounds.getWidth());
+            mirror.stage.setHeight(bounds.getHeight());
+            mirror.stage.setFullScreen(true);
+        }
+        mirror.stage.setOnHidden(event -> mirror.close());
+        mirror.stage.iconifiedProperty().addListener((observable, oldValue, newValue) -> mainController.updateLowPower());
+        mirror.stage.showingProperty().addListener((observable, oldValue, newValue) -> mainController.updateLowPower());
+        mainController.addMirror(mirror);
+        mirror.stage.show();
+        return mirror;
+    }
+
+    private void setup(MainController mainController, Layout layout, double scale) {
+        this.mainController = mainController;
+        this.layout = layout;
+        this.scale = scale;
+        applyTheme();
+        applyFontScale();
+        PreferenceController.fontScaleProperty.addListener(fontScaleListener);
+        PreferenceController.nightMode.addListener(nightModeListener);
+
+        if (layout == Layout.EXAMS) root.getItems().remove(clockRoot);
+        else {
+            clockController = new ClockController(clockPane, clockFace, hourGroup, minuteGroup, secondGroup, hourHand, minuteHand, secondHand);
+            clockRoot.widthProperty().addListener((observable, oldValue, newValue) -> clockController.resize(clockRoot.getWidth(), clockRoot.getHeight()));
+            clockRoot.heightProperty().addListener((observable, oldValue, newValue) -> clockController.resize(clockRoot.getWidth(), clockRoot.getHeight()));
+
+            // toilets show the console's state, clicking here changes it there too
+            toiletIconParent.visibleProperty().bind(PreferenceController.showToiletProperty);
+            toiletMale.fitHeightProperty().bind(PreferenceController.toiletScaleProperty.multiply(150));
+            toiletFemale.fitHeightProperty().bind(PreferenceController.toiletScaleProperty.multiply(150));
+            toiletMale.setOnMouseClicked(e -> mainController.toiletMaleOccupied.set(!mainController.toiletMaleOccupied.get()));
+            toiletFemale.setOnMouseClicked(e -> mainController.toiletFemaleOccupied.set(!mainController.toiletFemaleOccupied.get()));
+            mainController.toiletMaleOccupied.addListener(toiletListener);
+            mainController.toiletFemaleOccupied.addListener(toiletListener);
+            applyToilets();
+        }
+
+        if (layout == Layout.CLOCK) root.getItems().remove(rightPane);
+        else {
+            examHolderPool = new ExamHolderPool(mainController);
+            examList.setItems(mainController.exams);
+            examList.setCellFactory(listView -> new ExamListCell(examHolderPool));
+            examList.setPlaceholder(new Label("No exams"));
+            mainController.examRepository.addUpdateListener(updateListener);
+        }
+        if (layout == Layout.BOTH) root.orientationProperty().bind(ExamHolder.displayOrientationProperty);
+        else root.setOrientation(Orientation.HORIZONTAL);
+    }
+
+    private void applyFontScale() {
+        root.setStyle("-fx-font-size: " + PreferenceController.fontScaleProperty.get() * scale + "px;");
+    }
+
+    private void applyTheme() {
+        Scene scene = root.getScene();
+        scene.getStylesheets().removeAll("/main.css", "/theme.css", "/theme.dark.css", "/theme.light.css");
+        scene.getStylesheets().addAll("/main.css", "/theme.css", PreferenceController.nightMode.get() ? "/theme.dark.css" : "/theme.light.css");
+    }
+
+    private void applyToilets() {
+        toiletMale.setEffect(mainController.toiletMaleOccupied.get() ? redEffect : greenEffect);
+        toiletFemale.setEffect(mainController.toiletFemaleOccupied.get() ? redEffect : greenEffect);
+    }
+
+    /**
+     * Refresh the parts that move smoothly, called by the main controller every pulse
+     *
+     * @param tick the time to show
+     */
+    void refreshHands(Tick tick) {
+        if (clockController != null) clockController.refreshHands(tick);
+    }
+
+    /**
+     * Refresh the parts that change once a second
+     *
+     * @param tick the time to show
+     */
+    void refreshSecond(Tick tick) {
+        if (clockController != null) clockController.refreshDigital(tick);
+        if (examHolderPool != null) examHolderPool.update(tick);
+    }
+
+    /**
+     * Number of exam holders on screen
+     *
+     * @return the count
+     */
+    int getRenderedExams() {
+        return examHolderPool == null ? 0 : examHolderPool.size();
+    }
+
+    /**
+     * Detaches from the main controller, called once the window is closed
+     */
+    private void close() {
+        mainController.removeMirror(this);
+        PreferenceController.fontScaleProperty.removeListener(fontScaleListener);
+        PreferenceController.nightMode.removeListener(nightModeListener);
+        mainController.toiletMaleOccupied.removeListener(toiletListener);
+        mainController.toiletFemaleOccupied.removeListener(toiletListener);
+        if (clockController != null) {
+            clockController.dispose();
+            toiletIconParent.visibleProperty().unbind();
+            toiletMale.fitHeightProperty().unbind();
+            toiletFemale.fitHeightProperty().unbind();
+        }
+        root.orientationProperty().unbind();
+        if (examHolderPool != null) {
+            mainController.examRepository.removeUpdateListener(updateListener);
+            examList.setItems(null); // releases the holders, and stops listening to the exams
+        }
+    }
+
+    public Stage getStage() {
+        return stage;
+    }
+
+    /**
+     * What a mirror shows
+     */
+    public enum Layout {
+        /**
+         * Clock only, for hall screens
+         */
+        CLOCK,
+        /**
+         * Exam list only
+         */
+        EXAMS,
+        /**
+         * Clock and exam list side by side, for projectors
+         */
+        BOTH
+    }
+
+    /**
+     * Layout and scale of one mirror, as given on the command line
+     */
+    public static final class Spec {
+        public final Layout layout;
+        public final double scale;
+
+        public Spec(Layout layout, double scale) {
+            this.layout = layout;
+            this.scale = scale;
+        }
+
+        /**
+         * Parses layout[:scale], like "clock", "both:1.5"
+         *
+         * @param spec the text
+         * @return the spec
+         * @throws IllegalArgumentException if the layout is unknown or the scale is not a positive number
+         */
+        public static Spec parse(String spec) {
+            String[] parts = spec.trim().split(":", 2);
+            Layout layout = parts[0].isEmpty() ? Layout.BOTH : Layout.valueOf(parts[0].toUpperCase(Locale.ROOT));
+            double scale = parts.length > 1 ? Double.parseDouble(parts[1]) : 1;
+            if (!(scale > 0)) throw new IllegalArgumentException("Mirror scale must be positive: " + spec);
+            return new Spec(layout, scale);
+        }
+    }
+}
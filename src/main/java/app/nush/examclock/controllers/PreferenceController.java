@@ -41,6 +41,10 @@ public class PreferenceController {
      * the name of this clock, visible to controllers
      */
     public static final SimpleStringProperty nameProperty = new SimpleStringProperty("Exam Clock");
+    /**
+     * follow the server's time instead of this machine's, so every clock in a hall agrees
+     */
+    public static final SimpleBooleanProperty timeSyncProperty = new SimpleBooleanProperty(true);
 
     /**
      * color of the second hand (big red arrow of death)
@@ -59,11 +63,46 @@ public class PreferenceController {
      * less realistic but more visible
      */
     public static final SimpleBooleanProperty digitalAboveAnalogProperty = new SimpleBooleanProperty(false);
+    /**
+     * only redraw when something visibly moves, turn off to go back to redrawing every 16 ms
+     */
+    public static final SimpleBooleanProperty adaptiveRefreshProperty = new SimpleBooleanProperty(true);
+    /**
+     * serve metrics on localhost for IT, see MetricsServer
+     */
+    public static final SimpleBooleanProperty metricsEndpointProperty = new SimpleBooleanProperty(false);
     /**
      * The clockID.
      */
     public static String clockID;
     private final MainController controller;
+    private final PreferenceSnapshot snapshot = new PreferenceSnapshot(ExamClock.getDataDirectory().resolve("settings.properties"))
+            .add("nightMode", nightMode)
+            .add("fontScale", fontScaleProperty)
+            .add("use12HourFormat", use12HourFormatProperty)
+            .add("showToilet", showToiletProperty)
+            .add("toiletScale", toiletScaleProperty)
+            .add("adaptiveRefresh", adaptiveRefreshProperty)
+            .add("showExams", ExamHolder.showExamsProperty)
+            .add("displayOrientation", ExamHolder.displayOrientationProperty)
+            .add("gradientFeather", ExamHolder.gradientFeatherProperty)
+            .add("showCountDown", ExamHolder.showCountDownForExamProperty)
+            .add("simplifiedCountdown", ExamHolder.useSimplifiedCountdownForExamProperty)
+            .add("interpolationSpeed", ClockController.speed)
+            .add("secondHandColor", secondHandColorProperty)
+            .add("analogueShadow", analogueShadowProperty)
+            .add("digitalAboveAnalog", digitalAboveAnalogProperty)
+            .add("digitalBackground", DigitalClock.digitalBackgroundProperty)
+            .add("digitalBackgroundColor", DigitalClock.digitalClockBackgroundColorProperty)
+            .add("digitalShadow", DigitalClock.digitalClockShadowEffectsProperty)
+            .add("digitalCached", DigitalClock.digitalClockCachedProperty)
+            .add("digitColor", DigitalClock.digitalClockDigitColorProperty)
+            .add("digitBorderColor", DigitalClock.digitalClockDigitBorderColorProperty)
+            .add("digitBorderWidth", DigitalClock.digitalClockDigitBorderWidthProperty)
+            .add("name", nameProperty)
+            .add("openToRequests", openToRequestsProperty)
+            .add("timeSync", timeSyncProperty)
+            .add("metricsEndpoint", metricsEndpointProperty);
     private PreferencesFx preferencesFx;
 
     /**
@@ -77,9 +116,16 @@ public class PreferenceController {
 
     /**
      * Init preferences.
+     * Settings are read from the snapshot, PreferencesFx is only built when the settings are opened.
+     * The first start has no snapshot yet and builds it to load them
      */
     public void initPreferences() {
         attachListeners();
+        if (!snapshot.load()) buildPreferencesFx();
+        snapshot.attach();
+    }
+
+    private void buildPreferencesFx() {
         preferencesFx = PreferencesFx.of(ExamClock.class,
                 Category.of("Display",
                         Group.of("General",
@@ -87,7 +133,8 @@ public class PreferenceController {
                                 Setting.of("Font Size", fontScaleProperty, 8, 40),
                                 Setting.of("Use 12 Hour Format", use12HourFormatProperty),
                                 Setting.of("Show Toilet", showToiletProperty),
-                                Setting.of("Toilet Scale", toiletScaleProperty, 0.1, 3, 2)
+                                Setting.of("Toilet Scale", toiletScaleProperty, 0.1, 3, 2),
+                                Setting.of("Adaptive Refresh", adaptiveRefreshProperty)
                         )
                 ).expand().subCategories(
                         Category.of("Exams",
@@ -110,7 +157,8 @@ public class PreferenceController {
                                         Setting.of("Above Analogue", digitalAboveAnalogProperty),
                                         Setting.of("Show Background", DigitalClock.digitalBackgroundProperty),
                                         Setting.of("Background", DigitalClock.digitalClockBackgroundColorProperty),
-                                        Setting.of("Shadows", DigitalClock.digitalClockShadowEffectsProperty)
+                                        Setting.of("Shadows", DigitalClock.digitalClockShadowEffectsProperty),
+                                        Setting.of("Cached Rendering", DigitalClock.digitalClockCachedProperty)
                                 ),
                                 Group.of("Digits",
                                         Setting.of("Digit Color", DigitalClock.digitalClockDigitColorProperty),
@@ -124,7 +172,11 @@ public class PreferenceController {
                                 Setting.of("Display Name", nameProperty)
                         ),
                         Group.of("Central Server",
-                                Setting.of("Open to requests", openToRequestsProperty)
+                                Setting.of("Open to requests", openToRequestsProperty),
+                                Setting.of("Sync Time", timeSyncProperty)
+                        ),
+                        Group.of("Diagnostics",
+                                Setting.of("Local Metrics Endpoint", metricsEndpointProperty)
                         )
                 )
         );
@@ -144,6 +196,7 @@ public class PreferenceController {
         nightMode.addListener((observable, oldValue, newValue) -> {
             controller.stage.getScene().getStylesheets().removeAll("/theme.dark.css", "/theme.light.css");
             controller.stage.getScene().getStylesheets().add(newValue ? "/theme.dark.css" : "/theme.light.css");
+            if (preferencesFx == null) return;
             preferencesFx.getView().getScene().getStylesheets().removeAll("/theme.dark.css", "/theme.light.css");
             preferencesFx.getView().getScene().getStylesheets().addAll("/theme.css", nightMode.get() ? "/theme.dark.css" : "/theme.light.css");
         });
@@ -155,6 +208,7 @@ public class PreferenceController {
      * @param modal the modal
      */
     public void show(boolean modal) {
+        if (preferencesFx == null) buildPreferencesFx();
         preferencesFx.show(modal);
     }
 
@@ -0,0 +1,131 @@
+package app.nush.examclock.controllers;
+
+import javafx.beans.property.Property;
+import javafx.scene.paint.Color;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plain copy of the settings, readable without building PreferencesFx
+ * <p>
+ * PreferencesFx only loads what it stored once its whole model and view are built, which is most of startup on a thin client.
+ * Every change is copied to a properties file here, so a kiosk can read its settings in a millisecond
+ * and leave PreferencesFx until someone opens the settings
+ */
+class PreferenceSnapshot {
+    /**
+     * Dragging a slider changes a setting every frame, only write once it stopped
+     */
+    private static final long SAVE_DELAY_MILLIS = 500;
+
+    private final Path file;
+    private final Map<String, Property<?>> properties = new LinkedHashMap<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Preference Snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> pendingSave;
+
+    /**
+     * Instantiates a new preference snapshot.
+     *
+     * @param file the properties file
+     */
+    PreferenceSnapshot(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Adds a setting, keys must stay the same across versions
+     *
+     * @param key      the key
+     * @param property the property
+     * @return this
+     */
+    PreferenceSnapshot add(String key, Property<?> property) {
+        properties.put(key, property);
+        return this;
+    }
+
+    /**
+     * Sets the properties from the file
+     *
+     * @return false if there is no snapshot yet, then nothing was changed
+     */
+    boolean load() {
+        if (!Files.exists(file)) return false;
+        Properties values = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            values.load(in);
+        } catch (IOException e) {
+            System.out.println("Unable to read preference snapshot! " + e.getMessage());
+            return false;
+        }
+        for (Map.Entry<String, Property<?>> entry : properties.entrySet()) {
+            String value = values.getProperty(entry.getKey());
+            if (value != null) try {
+                set(entry.getValue(), value);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Skipped preference " + entry.getKey() + "=" + value);
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void set(Property<?> property, String value) {
+        Object current = property.getValue();
+        Object parsed;
+        if (current instanceof Boolean) parsed = Boolean.valueOf(value);
+        else if (current instanceof Integer) parsed = Integer.valueOf(value);
+        else if (current instanceof Double) parsed = Double.valueOf(value);
+        else if (current instanceof Color) parsed = Color.web(value);
+        else if (current instanceof Enum) parsed = Enum.valueOf(((Enum) current).getDeclaringClass(), value);
+        else parsed = value;
+        ((Property<Object>) property).setValue(parsed);
+    }
+
+    /**
+     * Saves now, then again shortly after every change
+     */
+    void attach() {
+        for (Property<?> property : properties.values())
+            property.addListener((observable, oldValue, newValue) -> scheduleSave());
+        scheduleSave();
+    }
+
+    private synchronized void scheduleSave() {
+        if (pendingSave != null) pendingSave.cancel(false);
+        // read on the FX thread, the properties are not thread safe
+        Properties values = new Properties();
+        for (Map.Entry<String, Property<?>> entry : properties.entrySet())
+            values.setProperty(entry.getKey(), String.valueOf(entry.getValue().getValue()));
+        pendingSave = executor.schedule(() -> save(values), SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void save(Properties values) {
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                values.store(out, "Copy of the settings, for starting without PreferencesFx");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("Unable to save preference snapshot! " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package app.nush.examclock.diagnostics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts events since startup
+ */
+public final class Counter {
+    private final LongAdder value = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+}
@@ -0,0 +1,54 @@
+package app.nush.examclock.diagnostics;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.TextArea;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.text.Font;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+/**
+ * Hidden diagnostics pane, shows the metrics and refreshes once a second while open
+ */
+public class DiagnosticsStage extends Stage {
+    private final TextArea text = new TextArea();
+    private final Timeline timeline = new Timeline(new KeyFrame(Duration.seconds(1), e -> refresh()));
+
+    /**
+     * Instantiates a new diagnostics stage.
+     */
+    public DiagnosticsStage() {
+        text.setEditable(false);
+        text.setFont(Font.font("monospaced", 12));
+        Button copy = new Button("Copy JSON");
+        copy.setOnAction(e -> {
+            ClipboardContent content = new ClipboardContent();
+            content.putString(Metrics.toJson().toString());
+            Clipboard.getSystemClipboard().setContent(content);
+        });
+        HBox buttons = new HBox(10, copy);
+        buttons.setPadding(new Insets(10));
+        BorderPane pane = new BorderPane(text, null, null, buttons, null);
+        setScene(new Scene(pane, 760, 420));
+        setTitle("Diagnostics");
+        timeline.setCycleCount(Timeline.INDEFINITE);
+        setOnShown(e -> {
+            refresh();
+            timeline.play();
+        });
+        setOnHidden(e -> timeline.stop());
+    }
+
+    private void refresh() {
+        double scroll = text.getScrollTop();
+        text.setText(Metrics.toText());
+        text.setScrollTop(scroll);
+    }
+}
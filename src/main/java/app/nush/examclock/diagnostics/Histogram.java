@@ -0,0 +1,81 @@
+package app.nush.examclock.diagnostics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram of durations, power of two buckets in microseconds
+ * <p>
+ * Percentiles are reported as the upper bound of their bucket, so at most 2x off,
+ * the max is exact. Cheap enough to record on every frame
+ */
+public final class Histogram {
+    /**
+     * Bucket i holds durations below 2^i µs, the last one also takes everything longer (~18 min)
+     */
+    private static final int BUCKETS = 31;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    Histogram() {
+    }
+
+    /**
+     * Records one duration
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        long micros = nanos / 1000;
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(bucket);
+        count.increment();
+        sum.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    /**
+     * Records one duration
+     *
+     * @param millis the duration in milliseconds
+     */
+    public void recordMillis(long millis) {
+        record(millis * 1_000_000);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : sum.sum() / 1e6 / n;
+    }
+
+    public double getMaxMillis() {
+        return max.get() / 1e6;
+    }
+
+    /**
+     * Estimates a percentile
+     *
+     * @param percentile 0 to 100
+     * @return upper bound of the bucket holding it, in milliseconds
+     */
+    public double getPercentileMillis(double percentile) {
+        long n = count.sum();
+        if (n == 0) return 0;
+        long rank = (long) Math.ceil(percentile / 100 * n);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) return Math.min((1L << i) / 1e3, getMaxMillis());
+        }
+        return getMaxMillis();
+    }
+}
@@ -0,0 +1,47 @@
+package app.nush.examclock.diagnostics;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+/**
+ * Heap gauges and GC pauses
+ */
+public final class JvmMetrics {
+    private static boolean registered;
+
+    private JvmMetrics() {
+    }
+
+    /**
+     * Registers the heap gauges and starts listening for GCs, only does anything the first time
+     */
+    public static synchronized void register() {
+        if (registered) return;
+        registered = true;
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        Metrics.gauge("heap.used", () -> memory.getHeapMemoryUsage().getUsed());
+        Metrics.gauge("heap.committed", () -> memory.getHeapMemoryUsage().getCommitted());
+        Metrics.gauge("heap.max", () -> memory.getHeapMemoryUsage().getMax());
+        Metrics.gauge("threads", () -> ManagementFactory.getThreadMXBean().getThreadCount());
+        Histogram pauses = Metrics.histogram("gc.pause");
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (!(collector instanceof NotificationEmitter)) continue;
+            ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION))
+                    return;
+                GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                // concurrent cycles do not stop the world, only count them
+                if (info.getGcCause().equals("No GC") || info.getGcName().contains("Cycles") || info.getGcName().contains("Concurrent")) {
+                    Metrics.counter("gc.concurrent").increment();
+                    return;
+                }
+                pauses.recordMillis(info.getGcInfo().getDuration());
+            }, null, null);
+        }
+    }
+}
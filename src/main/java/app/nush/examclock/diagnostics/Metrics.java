@@ -0,0 +1,114 @@
+package app.nush.examclock.diagnostics;
+
+import com.google.gson.JsonObject;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+/**
+ * In process metrics registry, what the diagnostics pane and the local endpoint show
+ * <p>
+ * Everything counts from startup and is never reset, the point is to be able to show
+ * afterwards that the clock did not freeze during a paper. Names are dotted, e.g. frame.pulse
+ */
+public final class Metrics {
+    private static final Map<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+    private static final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private static final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Gets or creates a histogram
+     *
+     * @param name the name
+     * @return the histogram
+     */
+    public static Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    /**
+     * Gets or creates a counter
+     *
+     * @param name the name
+     * @return the counter
+     */
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, key -> new Counter());
+    }
+
+    /**
+     * Registers a gauge, replacing any with the same name
+     * <p>
+     * The supplier is called from whatever thread reads the metrics, keep it cheap and thread safe
+     *
+     * @param name     the name
+     * @param supplier the current value
+     */
+    public static void gauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    private static long uptimeMillis() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    /**
+     * Plain text dump, one metric per line
+     *
+     * @return the text
+     */
+    public static String toText() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("time %s uptime %ds%n", Instant.now(), uptimeMillis() / 1000));
+        histograms.forEach((name, histogram) -> builder.append(String.format("%-24s count=%-8d mean=%8.3fms p50=%8.3fms p99=%8.3fms max=%9.3fms%n",
+                name, histogram.getCount(), histogram.getMeanMillis(), histogram.getPercentileMillis(50),
+                histogram.getPercentileMillis(99), histogram.getMaxMillis())));
+        counters.forEach((name, counter) -> builder.append(String.format("%-24s %d%n", name, counter.get())));
+        gauges.forEach((name, gauge) -> builder.append(String.format("%-24s %d%n", name, readGauge(gauge))));
+        return builder.toString();
+    }
+
+    /**
+     * JSON dump, {"time", "uptimeMillis", "histograms": {name: {...}}, "counters": {...}, "gauges": {...}}
+     *
+     * @return the json
+     */
+    public static JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        json.addProperty("time", Instant.now().toString());
+        json.addProperty("uptimeMillis", uptimeMillis());
+        JsonObject histogramsJson = new JsonObject();
+        histograms.forEach((name, histogram) -> {
+            JsonObject histogramJson = new JsonObject();
+            histogramJson.addProperty("count", histogram.getCount());
+            histogramJson.addProperty("meanMillis", histogram.getMeanMillis());
+            histogramJson.addProperty("p50Millis", histogram.getPercentileMillis(50));
+            histogramJson.addProperty("p90Millis", histogram.getPercentileMillis(90));
+            histogramJson.addProperty("p99Millis", histogram.getPercentileMillis(99));
+            histogramJson.addProperty("maxMillis", histogram.getMaxMillis());
+            histogramsJson.add(name, histogramJson);
+        });
+        json.add("histograms", histogramsJson);
+        JsonObject countersJson = new JsonObject();
+        counters.forEach((name, counter) -> countersJson.addProperty(name, counter.get()));
+        json.add("counters", countersJson);
+        JsonObject gaugesJson = new JsonObject();
+        gauges.forEach((name, gauge) -> gaugesJson.addProperty(name, readGauge(gauge)));
+        json.add("gauges", gaugesJson);
+        return json;
+    }
+
+    private static long readGauge(LongSupplier gauge) {
+        try {
+            return gauge.getAsLong();
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package app.nush.examclock.diagnostics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves the metrics on localhost only
+ * <ul>
+ * <li>/metrics plain text</li>
+ * <li>/metrics.json JSON</li>
+ * </ul>
+ * Port is {@link #DEFAULT_PORT}, override with -Dexamclock.metrics.port
+ */
+public class MetricsServer {
+    /**
+     * The default port
+     */
+    public static final int DEFAULT_PORT = 9464;
+    private static HttpServer server;
+
+    /**
+     * Starts the server if it is not running
+     */
+    public static synchronized void start() {
+        if (server != null) return;
+        int port = Integer.getInteger("examclock.metrics.port", DEFAULT_PORT);
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+            server.createContext("/metrics", exchange -> respond(exchange, "text/plain", Metrics.toText()));
+            server.createContext("/metrics.json", exchange -> respond(exchange, "application/json", Metrics.toJson().toString()));
+            server.start(); // default executor, requests are handled on the server thread
+            System.out.println("Metrics on http://127.0.0.1:" + port + "/metrics");
+        } catch (IOException e) {
+            System.out.println("Unable to start metrics endpoint on port " + port + "! " + e.getMessage());
+            server = null;
+        }
+    }
+
+    /**
+     * Stops the server if it is running
+     */
+    public static synchronized void stop() {
+        if (server == null) return;
+        server.stop(0);
+        server = null;
+    }
+
+    private static void respond(HttpExchange exchange, String type, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", type + "; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package app.nush.examclock.diagnostics;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import java.io.IOException;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.RuntimeMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Startup timeline, time to first frame and resident memory, for tracking startup and comparing launch profiles
+ * <p>
+ * Each phase is marked with the JVM uptime and the number of classes loaded so far, and kept as a startup.* gauge.
+ * Work that can wait is queued with {@link #afterFirstFrame} and runs once the clock is on screen.
+ * The timeline is printed when started with -Dexamclock.startupReport=print,
+ * or =exit to quit right after, which is what ./gradlew startupBenchmark runs.
+ * =train quits once the deferred work ran too, for the AppCDS training run, see ./gradlew cdsArchive
+ */
+public final class StartupReport {
+    public static final String PROPERTY = "examclock.startupReport";
+    private static final List<String> phases = new ArrayList<>();
+    private static final List<Runnable> deferred = new ArrayList<>();
+    private static boolean firstFrameShown;
+
+    private StartupReport() {
+    }
+
+    /**
+     * Marks the end of a startup phase
+     *
+     * @param phase the phase, like fxml or css
+     */
+    public static synchronized void mark(String phase) {
+        RuntimeMXBean runtime = ManagementFactory.getRuntimeMXBean();
+        ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+        long uptime = runtime.getUptime();
+        long classes = classLoading.getTotalLoadedClassCount();
+        phases.add(phase + "=" + uptime + "ms/" + classes + "c");
+        Metrics.gauge("startup." + phase, () -> uptime);
+        Metrics.gauge("startup." + phase + ".classes", () -> classes);
+    }
+
+    /**
+     * Runs something once the first frame is on screen, or now if it already is. FX thread only
+     *
+     * @param runnable the work
+     */
+    public static void afterFirstFrame(Runnable runnable) {
+        if (firstFrameShown) runnable.run();
+        else deferred.add(runnable);
+    }
+
+    /**
+     * Waits for the first frame, call right after showing the main stage
+     */
+    public static void afterShow() {
+        mark("show");
+        new AnimationTimer() {
+            private int pulses;
+
+            @Override
+            public void handle(long now) {
+                // the first pulse renders the first frame after this runs, the second one proves it was shown
+                if (++pulses < 2) return;
+                stop();
+                mark("first-frame");
+                long firstFrame = ManagementFactory.getRuntimeMXBean().getUptime();
+                firstFrameShown = true;
+                // one at a time, so pulses can run in between and the deferred work does not hold up a frame
+                Platform.runLater(this::runDeferred);
+                String mode = System.getProperty(PROPERTY);
+                if (mode == null) return;
+                System.out.println("startup " + String.join(" ", phases));
+                System.out.println("startup first-frame=" + firstFrame + "ms rss=" + residentKilobytes() + "kB");
+                if (mode.equals("exit")) Platform.runLater(() -> System.exit(0));
+            }
+
+            private void runDeferred() {
+                if (deferred.isEmpty()) {
+                    mark("deferred");
+                    if ("train".equals(System.getProperty(PROPERTY))) Platform.runLater(() -> System.exit(0));
+                    return;
+                }
+                deferred.remove(0).run();
+                Platform.runLater(this::runDeferred);
+            }
+        }.start();
+    }
+
+    /**
+     * Resident set size of this process
+     *
+     * @return the size in kB, -1 where /proc is not available
+     */
+    public static long residentKilobytes() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"), StandardCharsets.US_ASCII)) {
+                if (line.startsWith("VmRSS:")) return Long.parseLong(line.replaceAll("[^0-9]", ""));
+            }
+        } catch (IOException | NumberFormatException ignored) {
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,179 @@
+package app.nush.examclock.display;
+
+import app.nush.examclock.model.Tick;
+import app.nush.examclock.model.TimeSource;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Scheduler that only renders when something visible moves
+ * <p>
+ * Seconds fire on the exam time second boundary. Pulses come from an {@link AnimationTimer}
+ * that only runs inside the window around each boundary where the interpolated second hand
+ * is actually moving, outside of it JavaFX is left idle.
+ * When the window is hidden everything drops to one refresh every few seconds, without pulses
+ */
+public class AdaptiveRefreshScheduler implements RefreshScheduler {
+    /**
+     * Period between refreshes in low power mode
+     */
+    private static final long LOW_POWER_PERIOD = 5000;
+    /**
+     * Fire seconds slightly late so the wall clock has surely ticked over
+     */
+    private static final long SECOND_SLACK = 2;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Refresh Scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AnimationTimer animationTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            onPulse.accept(TimeSource.tick());
+        }
+    };
+    /**
+     * Half width of the window in millis around each second where pulses are needed,
+     * 500 or more means the hands are always moving
+     */
+    private final LongSupplier motionHalfWidth;
+    private Consumer<Tick> onPulse = tick -> {
+    };
+    private Consumer<Tick> onSecond = tick -> {
+    };
+    private boolean playing;
+    private boolean lowPower;
+    private boolean pulsing;
+    /**
+     * Bumped whenever pending tasks become stale
+     */
+    private int generation;
+    private ScheduledFuture<?> secondFuture;
+    private ScheduledFuture<?> openFuture;
+    private ScheduledFuture<?> closeFuture;
+
+    /**
+     * Instantiates a new adaptive refresh scheduler.
+     *
+     * @param motionHalfWidth half width of the motion window in millis
+     */
+    public AdaptiveRefreshScheduler(LongSupplier motionHalfWidth) {
+        this.motionHalfWidth = motionHalfWidth;
+    }
+
+    @Override
+    public void setOnPulse(Consumer<Tick> onPulse) {
+        this.onPulse = onPulse;
+    }
+
+    @Override
+    public void setOnSecond(Consumer<Tick> onSecond) {
+        this.onSecond = onSecond;
+    }
+
+    @Override
+    public void play() {
+        stop();
+        playing = true;
+        Tick tick = TimeSource.tick();
+        onSecond.accept(tick);
+        onPulse.accept(tick);
+        long sinceBoundary = tick.millis;
+        long halfWidth = motionHalfWidth.getAsLong();
+        if (!lowPower && halfWidth < 500 && sinceBoundary < halfWidth) {
+            // still inside the window of the last second
+            startPulses();
+            closeFuture = later(this::settle, halfWidth - sinceBoundary);
+        }
+        scheduleNext();
+    }
+
+    @Override
+    public void stop() {
+        playing = false;
+        generation++;
+        cancel(secondFuture);
+        cancel(openFuture);
+        cancel(closeFuture);
+        stopPulses();
+    }
+
+    @Override
+    public void dispose() {
+        stop();
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void setLowPower(boolean lowPower) {
+        if (this.lowPower == lowPower) return;
+        this.lowPower = lowPower;
+        if (playing) play();
+    }
+
+    private void scheduleNext() {
+        long now = TimeSource.now();
+        long period = lowPower ? LOW_POWER_PERIOD : 1000;
+        long boundary = (now / period + 1) * period;
+        secondFuture = later(this::second, boundary + SECOND_SLACK - now);
+        if (lowPower) return;
+        long halfWidth = motionHalfWidth.getAsLong();
+        if (halfWidth >= 500) startPulses();
+        else if (boundary - halfWidth <= now) startPulses();
+        else openFuture = later(this::startPulses, boundary - halfWidth - now);
+    }
+
+    private void second() {
+        Tick tick = TimeSource.tick();
+        onSecond.accept(tick);
+        if (lowPower) onPulse.accept(tick);
+        else if (pulsing) {
+            long halfWidth = motionHalfWidth.getAsLong();
+            if (halfWidth < 500) closeFuture = later(this::settle, halfWidth);
+        }
+        scheduleNext();
+    }
+
+    /**
+     * Ends a motion window, with one last pulse so the hand rests exactly on the tick
+     */
+    private void settle() {
+        stopPulses();
+        onPulse.accept(TimeSource.tick());
+    }
+
+    private void startPulses() {
+        if (pulsing) return;
+        pulsing = true;
+        animationTimer.start();
+    }
+
+    private void stopPulses() {
+        if (!pulsing) return;
+        pulsing = false;
+        animationTimer.stop();
+    }
+
+    /**
+     * Runs a task on the FX thread after a delay, unless the schedule changed in between
+     */
+    private ScheduledFuture<?> later(Runnable task, long delayMillis) {
+        int expected = generation;
+        return executor.schedule(() -> Platform.runLater(() -> {
+            if (playing && expected == generation) task.run();
+        }), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static void cancel(ScheduledFuture<?> future) {
+        if (future != null) future.cancel(false);
+    }
+}
@@ -0,0 +1,186 @@
+package app.nush.examclock.display;
+
+import javafx.geometry.Bounds;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.effect.DropShadow;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Scale;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Seven segment display drawn from pre-rasterized glyphs
+ * <p>
+ * The digits 0-9 and the colons are snapshotted once per style and scale, with the shadow baked in.
+ * After that a changed digit is a clear and a couple of image draws clipped to its own column,
+ * the rest of the canvas is left alone. The canvas is sized in device pixels and scaled back down,
+ * so glyphs stay sharp however far the clock is scaled up
+ */
+final class DigitCanvas extends Canvas {
+    /**
+     * Room around the digits for the drop shadow, radius 10 plus antialiasing
+     */
+    private static final double PAD = 12;
+    /**
+     * Scales are rounded up to this step, so a window being dragged does not rasterize every frame
+     */
+    private static final double SCALE_STEP = 8;
+    private static final double MAX_SCALE = 8;
+    private static final int COLONS = 10;
+    /**
+     * Glyph sets for the last few styles, switching night mode back and forth costs nothing
+     */
+    private static final Map<String, Glyph[]> glyphCache = new LinkedHashMap<String, Glyph[]>(8, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Glyph[]> eldest) {
+            return size() > 4;
+        }
+    };
+    private static DigitalClock.Digit digitStamp;
+    private static Group dotsStamp;
+
+    private final double clockWidth;
+    private final double clockHeight;
+    private final int[] shown = new int[6];
+    private final Scale transform = new Scale(1, 1);
+    private double scale = 1;
+    private Glyph[] glyphs;
+
+    /**
+     * Instantiates a new digit canvas.
+     *
+     * @param clockWidth  the clock width
+     * @param clockHeight the clock height
+     */
+    DigitCanvas(double clockWidth, double clockHeight) {
+        this.clockWidth = clockWidth;
+        this.clockHeight = clockHeight;
+        setLayoutX(-PAD);
+        setLayoutY(-PAD);
+        getTransforms().add(transform);
+        setMouseTransparent(true);
+        invalidate();
+    }
+
+    /**
+     * Sets the on screen scale, the next show rasterizes again if it changed
+     *
+     * @param scale the scale, including the output scale of the screen
+     */
+    void setScale(double scale) {
+        scale = Math.min(MAX_SCALE, Math.max(1, Math.ceil(scale * SCALE_STEP) / SCALE_STEP));
+        if (scale == this.scale) return;
+        this.scale = scale;
+        invalidate();
+    }
+
+    /**
+     * Drops the glyphs, call when the digit style changed
+     */
+    void invalidate() {
+        glyphs = null;
+        Arrays.fill(shown, -1);
+    }
+
+    /**
+     * Shows the digits, only the columns of changed digits are drawn
+     *
+     * @param values the six digits
+     */
+    void show(int[] values) {
+        GraphicsContext gc = getGraphicsContext2D();
+        if (glyphs == null) {
+            glyphs = loadGlyphs(scale);
+            setWidth(Math.ceil(toPixels(clockWidth + PAD)));
+            setHeight(Math.ceil(toPixels(clockHeight + PAD)));
+            transform.setX(1 / scale);
+            transform.setY(1 / scale);
+            gc.clearRect(0, 0, getWidth(), getHeight());
+            draw(gc, glyphs[COLONS], 0);
+            for (int i = 0; i < 6; i++) draw(gc, glyphs[values[i]], DigitalClock.digitX(i));
+            System.arraycopy(values, 0, shown, 0, shown.length);
+            return;
+        }
+        for (int i = 0; i < 6; i++) {
+            if (values[i] == shown[i]) continue;
+            shown[i] = values[i];
+            // the column of this digit, shadows of the neighbours and the colons reach into it
+            double left = toPixels(DigitalClock.digitX(i) - PAD);
+            double right = toPixels(DigitalClock.digitX(i) + DigitalClock.Digit.DIGIT_WIDTH + PAD);
+            gc.save();
+            gc.beginPath();
+            gc.rect(left, 0, right - left, getHeight());
+            gc.clip();
+            gc.clearRect(left, 0, right - left, getHeight());
+            draw(gc, glyphs[COLONS], 0);
+            for (int j = 0; j < 6; j++) {
+                if (Math.abs(DigitalClock.digitX(j) - DigitalClock.digitX(i)) < DigitalClock.Digit.DIGIT_WIDTH + 2 * PAD)
+                    draw(gc, glyphs[shown[j]], DigitalClock.digitX(j));
+            }
+            gc.restore();
+        }
+    }
+
+    private void draw(GraphicsContext gc, Glyph glyph, double x) {
+        gc.drawImage(glyph.image, Math.round(toPixels(x + glyph.x)), Math.round(toPixels(glyph.y)));
+    }
+
+    /**
+     * Clock coordinates to canvas pixels
+     */
+    private double toPixels(double x) {
+        return (x + PAD) * scale;
+    }
+
+    private static Glyph[] loadGlyphs(double scale) {
+        String key = DigitalClock.digitalClockDigitColorProperty.get() + "/" + DigitalClock.digitalClockDigitBorderColorProperty.get() + "/" +
+                DigitalClock.digitalClockDigitBorderWidthProperty.get() + "/" + DigitalClock.digitalClockShadowEffectsProperty.get() + "/" + scale;
+        Glyph[] glyphs = glyphCache.get(key);
+        if (glyphs != null) return glyphs;
+        if (digitStamp == null) {
+            digitStamp = new DigitalClock.Digit();
+            dotsStamp = DigitalClock.createDots();
+        }
+        DropShadow shadow = DigitalClock.digitalClockShadowEffectsProperty.get() ? new DropShadow() : null;
+        digitStamp.setEffect(shadow);
+        dotsStamp.setEffect(shadow);
+        glyphs = new Glyph[11];
+        for (int i = 0; i < 10; i++) {
+            digitStamp.showNumber(i);
+            glyphs[i] = snapshot(digitStamp, scale);
+        }
+        glyphs[COLONS] = snapshot(dotsStamp, scale);
+        glyphCache.put(key, glyphs);
+        return glyphs;
+    }
+
+    private static Glyph snapshot(Node stamp, double scale) {
+        SnapshotParameters parameters = new SnapshotParameters();
+        parameters.setFill(Color.TRANSPARENT);
+        parameters.setTransform(new Scale(scale, scale));
+        Bounds bounds = stamp.getBoundsInParent(); // includes the stroke and the shadow
+        return new Glyph(stamp.snapshot(parameters, null), bounds.getMinX(), bounds.getMinY());
+    }
+
+    /**
+     * A rasterized digit, with where its top left corner sits relative to the digit origin
+     */
+    private static final class Glyph {
+        private final WritableImage image;
+        private final double x;
+        private final double y;
+
+        private Glyph(WritableImage image, double x, double y) {
+            this.image = image;
+            this.x = x;
+            this.y = y;
+        }
+    }
+}
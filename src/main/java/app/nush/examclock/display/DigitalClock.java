@@ -1,17 +1,23 @@
 package app.nush.examclock.display;
 
+import app.nush.examclock.ExamClock;
 import app.nush.examclock.controllers.PreferenceController;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.value.ChangeListener;
 import javafx.scene.Group;
+import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.effect.DropShadow;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.Polygon;
 import javafx.scene.shape.Rectangle;
+import javafx.scene.shape.Shape;
 import javafx.scene.shape.StrokeType;
+import javafx.stage.Screen;
+import javafx.stage.Window;
 
 /**
  * The type Digital clock.
@@ -41,6 +47,10 @@ public class DigitalClock extends Parent {
      * background color of the digital clock
      */
     public static final SimpleObjectProperty<Color> digitalClockBackgroundColorProperty = new SimpleObjectProperty<>(new Color(0, 0, 0, .5));
+    /**
+     * whether digits are drawn from cached glyphs on a canvas, the node tree is the fallback
+     */
+    public static final SimpleBooleanProperty digitalClockCachedProperty = new SimpleBooleanProperty(true);
     /**
      * The Width.
      */
@@ -49,30 +59,82 @@ public class DigitalClock extends Parent {
      * The Height.
      */
     public final double height;
-    private final Digit[] digits;
+    private final Rectangle bg;
+    private final DropShadow dropShadow = new DropShadow();
+    private final int[] values = new int[6];
+    /**
+     * The node tree, only built when the canvas is not used
+     */
+    private Digit[] digits;
+    private Group nodeTree;
+    private DigitCanvas canvas;
+    private double renderScale = 1;
+    private final ChangeListener<Boolean> shadowListener = (observable, oldValue, newValue) -> {
+        updateEffect();
+        restyle();
+    };
+    private final ChangeListener<Object> styleListener = (observable, oldValue, newValue) -> restyle();
+    // kiosks always use the canvas, one node instead of a polygon per segment
+    private final ChangeListener<Boolean> cachedListener = (observable, oldValue, newValue) -> setCached(newValue || ExamClock.isKiosk());
 
     /**
      * Instantiates a new Digital clock.
      */
     public DigitalClock() {
-        digits = new Digit[7];
         width = 6 * Digit.DIGIT_SPACE;
         height = Digit.DIGIT_HEIGHT;
-        Rectangle bg = new Rectangle(width, height + 10);
+        bg = new Rectangle(width, height + 10);
         bg.setLayoutY(-5);
         getChildren().add(bg);
         bg.visibleProperty().bind(digitalBackgroundProperty);
         bg.fillProperty().bind(digitalClockBackgroundColorProperty);
-        digitalClockShadowEffectsProperty.addListener((observable, oldValue, newValue) -> {
-            if (newValue) setEffect(new DropShadow());
-            else setEffect(null);
-        });
-        for (int i = 0; i < 6; i++) {
-            Digit digit = new Digit();
-            digit.setLayoutX(i * Digit.DIGIT_SPACE + ((i + 1) % 2) * Digit.DIGIT_SPACE / 4);
-            digits[i] = digit;
-            getChildren().add(digit);
+        digitalClockShadowEffectsProperty.addListener(shadowListener);
+        digitalClockDigitColorProperty.addListener(styleListener);
+        digitalClockDigitBorderColorProperty.addListener(styleListener);
+        digitalClockDigitBorderWidthProperty.addListener(styleListener);
+        digitalClockCachedProperty.addListener(cachedListener);
+        setCached(digitalClockCachedProperty.get() || ExamClock.isKiosk());
+    }
+
+    /**
+     * Stops following the style settings, call once the clock is no longer shown.
+     * The settings are static, so they would otherwise keep every clock ever built
+     */
+    public void dispose() {
+        digitalClockShadowEffectsProperty.removeListener(shadowListener);
+        digitalClockDigitColorProperty.removeListener(styleListener);
+        digitalClockDigitBorderColorProperty.removeListener(styleListener);
+        digitalClockDigitBorderWidthProperty.removeListener(styleListener);
+        digitalClockCachedProperty.removeListener(cachedListener);
+        bg.visibleProperty().unbind();
+        bg.fillProperty().unbind();
+        if (nodeTree != null) unbind(nodeTree);
+    }
+
+    private static void unbind(Parent parent) {
+        for (Node node : parent.getChildrenUnmodifiable()) {
+            if (node instanceof Shape) {
+                Shape shape = (Shape) node;
+                shape.fillProperty().unbind();
+                shape.strokeProperty().unbind();
+                shape.strokeWidthProperty().unbind();
+            } else if (node instanceof Parent) unbind((Parent) node);
         }
+    }
+
+    /**
+     * Digit position, pairs are pulled together around the colons
+     */
+    static double digitX(int index) {
+        return index * Digit.DIGIT_SPACE + ((index + 1) % 2) * Digit.DIGIT_SPACE / 4;
+    }
+
+    /**
+     * Creates the two colons, bound to the digit style
+     *
+     * @return the colons
+     */
+    static Group createDots() {
         Group dots = new Group(
                 new Circle(Digit.DIGIT_SPACE + Digit.DIGIT_WIDTH + Digit.DIGIT_SPACE / 4, 44 * Digit.DIGIT_HEIGHT / 108, Digit.DIGIT_WIDTH / 9),
                 new Circle(Digit.DIGIT_SPACE + Digit.DIGIT_WIDTH + Digit.DIGIT_SPACE / 4, 64 * Digit.DIGIT_HEIGHT / 108, Digit.DIGIT_WIDTH / 9),
@@ -84,7 +146,63 @@ public class DigitalClock extends Parent {
             circle.strokeProperty().bind(digitalClockDigitBorderColorProperty);
             circle.strokeWidthProperty().bind(digitalClockDigitBorderWidthProperty);
         });
-        getChildren().add(dots);
+        return dots;
+    }
+
+    private void setCached(boolean cached) {
+        if (cached) {
+            if (nodeTree != null) getChildren().remove(nodeTree);
+            if (canvas == null) canvas = new DigitCanvas(width, height);
+            canvas.setScale(renderScale);
+            getChildren().add(canvas);
+        } else {
+            if (canvas != null) getChildren().remove(canvas);
+            if (nodeTree == null) {
+                digits = new Digit[6];
+                nodeTree = new Group();
+                for (int i = 0; i < 6; i++) {
+                    Digit digit = new Digit();
+                    digit.setLayoutX(digitX(i));
+                    digits[i] = digit;
+                    nodeTree.getChildren().add(digit);
+                }
+                nodeTree.getChildren().add(createDots());
+            }
+            getChildren().add(nodeTree);
+        }
+        updateEffect();
+        show();
+    }
+
+    /**
+     * The node tree takes the shadow as one effect over everything,
+     * on the canvas it is baked into the glyphs and only the background needs it
+     */
+    private void updateEffect() {
+        boolean shadow = digitalClockShadowEffectsProperty.get();
+        boolean cached = canvas != null && canvas.getParent() == this;
+        setEffect(shadow && !cached ? dropShadow : null);
+        bg.setEffect(shadow && cached ? dropShadow : null);
+    }
+
+    private void restyle() {
+        if (canvas != null) canvas.invalidate();
+        show();
+    }
+
+    /**
+     * Sets how much the clock is scaled up on screen, so glyphs are rasterized at the size they are shown
+     *
+     * @param scale the scale
+     */
+    public void setRenderScale(double scale) {
+        // the screen this window is on, a mirror can be on a projector with a different scale
+        Window window = getScene() == null ? null : getScene().getWindow();
+        renderScale = scale * (window != null ? window.getOutputScaleX() : Screen.getPrimary().getOutputScaleX());
+        if (canvas != null) {
+            canvas.setScale(renderScale);
+            show();
+        }
     }
 
     /**
@@ -96,15 +214,24 @@ public class DigitalClock extends Parent {
      */
     public void refreshClocks(int hours, int minutes, int seconds) {
         if (PreferenceController.use12HourFormatProperty.get() && hours > 12) hours -= 12;
-        digits[0].showNumber(hours / 10);
-        digits[1].showNumber(hours % 10);
-        digits[2].showNumber(minutes / 10);
-        digits[3].showNumber(minutes % 10);
-        digits[4].showNumber(seconds / 10);
-        digits[5].showNumber(seconds % 10);
+        values[0] = hours / 10;
+        values[1] = hours % 10;
+        values[2] = minutes / 10;
+        values[3] = minutes % 10;
+        values[4] = seconds / 10;
+        values[5] = seconds % 10;
+        show();
+    }
+
+    private void show() {
+        if (canvas != null && canvas.getParent() == this) canvas.show(values);
+        else for (int i = 0; i < 6; i++) digits[i].showNumber(values[i]);
     }
 
-    private static final class Digit extends Parent {
+    /**
+     * Seven segment digit as nodes, also the stamp for the canvas glyphs
+     */
+    static final class Digit extends Parent {
         private static final boolean[][] DIGIT_COMBINATIONS = new boolean[][]{
                 new boolean[]{true, false, true, true, true, true, true},
                 new boolean[]{false, false, false, false, true, false, true},
@@ -185,7 +312,7 @@ public class DigitalClock extends Parent {
          *
          * @param num the num
          */
-        public void showNumber(Integer num) {
+        public void showNumber(int num) {
             if (num < 0 || num > 9) num = 0; // default to 0 for non-valid numbers
             for (int i = 0; i < 7; i++) polygons[i].setVisible(DIGIT_COMBINATIONS[num][i]);
         }
@@ -1,23 +1,25 @@
 package app.nush.examclock.display;
 
+import app.nush.examclock.ExamClock;
 import app.nush.examclock.controllers.MainController;
 import app.nush.examclock.controllers.PreferenceController;
 import app.nush.examclock.model.Exam;
+import app.nush.examclock.model.Tick;
 import javafx.beans.property.*;
 import javafx.collections.FXCollections;
 import javafx.event.ActionEvent;
-import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
+import javafx.event.EventHandler;
+import javafx.geometry.Insets;
 import javafx.geometry.Orientation;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.control.Label;
+import javafx.scene.control.MenuButton;
+import javafx.scene.control.MenuItem;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
+import javafx.scene.text.TextAlignment;
 
-import java.io.IOException;
-import java.time.LocalDate;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
 
 /**
@@ -25,6 +27,8 @@ import java.util.Arrays;
  * holds a exam, obviously
  * <p>
  * Reusable, Resettable, Renewable (3Rs)
+ * <p>
+ * Shown inside an {@link ExamListCell}, selection belongs to the exam list
  */
 public class ExamHolder extends HBox {
 
@@ -55,54 +59,77 @@ public class ExamHolder extends HBox {
      */
     public static final ObjectProperty<Orientation> displayOrientationProperty = new SimpleObjectProperty<>(Orientation.HORIZONTAL);
 
-    private static final DateTimeFormatter FORMAT_12_HOURS = DateTimeFormatter.ofPattern("hh:mm:ss a");
-    private static final DateTimeFormatter FORMAT_24_HOURS = DateTimeFormatter.ofPattern("HH:mm:ss");
-    private static final DateTimeFormatter FORMAT_12_HOURS_NO_SECONDS = DateTimeFormatter.ofPattern("hh:mm a");
-    private static final DateTimeFormatter FORMAT_24_HOURS_NO_SECONDS = DateTimeFormatter.ofPattern("HH:mm");
+    /**
+     * Shared by every holder, borders are immutable
+     */
+    private static final Border BORDER = new Border(new BorderStroke(Color.GREY, BorderStrokeStyle.SOLID, CornerRadii.EMPTY, BorderWidths.DEFAULT));
+
     private final MainController controller;
-    @FXML
-    private Label nameLabel;
-    @FXML
-    private Label timeLabel;
-    @FXML
-    private Label countLabel;
-    private LocalDate date;
-    private LocalTime start;
-    private LocalTime end;
+    private final ExamHolderRenderer renderer = new ExamHolderRenderer();
+    private final Label nameLabel = new Label();
+    private final Label timeLabel = new Label();
+    private final Label countLabel = new Label();
     private Exam exam;
 
     /**
      * Instantiates a new exam holder.
+     * <p>
+     * Built in code rather than from fxml, loading it took most of the time of adding an exam
      *
      * @param controller the controller
      */
     public ExamHolder(MainController controller) {
         this.controller = controller;
-        FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/exam_holder.fxml"));
-        fxmlLoader.setRoot(this);
-        fxmlLoader.setController(this);
-
-        try {
-            fxmlLoader.load();
-        } catch (IOException exception) {
-            throw new RuntimeException(exception);
+        getStyleClass().add("exam-holder");
+        setSpacing(5);
+        setPadding(new Insets(5));
+        setMinSize(USE_PREF_SIZE, USE_PREF_SIZE);
+        setMaxSize(Double.MAX_VALUE, USE_PREF_SIZE);
+        setBorder(BORDER);
+
+        nameLabel.getStyleClass().add("exam-name");
+        nameLabel.setMaxWidth(Double.MAX_VALUE);
+        nameLabel.setWrapText(true);
+        timeLabel.setMaxWidth(Double.MAX_VALUE);
+        HBox.setHgrow(timeLabel, Priority.ALWAYS);
+
+        // kiosks are only looked at, the menu button and the row around it are left out
+        Node timeRow = timeLabel;
+        if (!ExamClock.isKiosk()) {
+            // menu items are only created the first time the menu is opened
+            MenuButton menuButton = new MenuButton();
+            menuButton.setMnemonicParsing(false);
+            menuButton.getStyleClass().add("constant-size");
+            menuButton.setOnShowing(event -> {
+                if (!menuButton.getItems().isEmpty()) return;
+                menuButton.getItems().addAll(menuItem("Duplicate", this::onDupe), menuItem("Edit", this::onEdit), menuItem("Delete", this::onDelete));
+            });
+            HBox row = new HBox(timeLabel, menuButton);
+            row.setAlignment(Pos.CENTER_LEFT);
+            row.setMaxWidth(Double.MAX_VALUE);
+            timeRow = row;
         }
 
+        VBox details = new VBox(nameLabel, timeRow);
+        details.setPadding(new Insets(5));
+        details.setMaxWidth(Double.MAX_VALUE);
+        HBox.setHgrow(details, Priority.ALWAYS);
+
+        countLabel.getStyleClass().addAll("time-left", "elevated");
+        countLabel.setMaxHeight(Double.MAX_VALUE);
+        countLabel.setMinWidth(USE_PREF_SIZE);
+        countLabel.setTextAlignment(TextAlignment.CENTER);
         countLabel.visibleProperty().bind(showCountDownForExamProperty);
         countLabel.managedProperty().bind(countLabel.visibleProperty());
 
-        setBorder(new Border(new BorderStroke(Color.GREY, BorderStrokeStyle.SOLID, CornerRadii.EMPTY, BorderWidths.DEFAULT)));
-        setOnMouseClicked(event -> {
-            if (controller.selectedExamHolder != null) {
-                controller.selectedExamHolder.getStyleClass().remove("selected");
-                if (controller.selectedExamHolder == this) {
-                    controller.selectedExamHolder = null;
-                    return;
-                }
-            }
-            getStyleClass().add("selected");
-            controller.selectedExamHolder = this;
-        });
+        getChildren().addAll(details, countLabel);
+    }
+
+    private static MenuItem menuItem(String text, EventHandler<ActionEvent> handler) {
+        MenuItem item = new MenuItem(text);
+        item.setMnemonicParsing(false);
+        item.setOnAction(handler);
+        return item;
     }
 
     /**
@@ -118,45 +145,22 @@ public class ExamHolder extends HBox {
 
     /**
      * Update function
+     * <p>
+     * Nodes are only touched when the rendered output changed, most frames do nothing
      *
-     * @param today the today
-     * @param now   the now
+     * @param tick the time to show
      */
-    public void update(LocalDate today, LocalTime now) {
-        if (today.isEqual(date)) {
-            if (now.isBefore(start)) {
-                countLabel.setText(String.format("%02d", ChronoUnit.HOURS.between(start, end)) + ":" + String.format("%02d", ChronoUnit.MINUTES.between(start, end) % 60) + ":" + String.format("%02d", ChronoUnit.SECONDS.between(start, end) % 60));
-                getStyleClass().removeAll("started", "ended");
-            } else if (now.isAfter(end)) {
-                countLabel.setText("00:00:00");
-                getStyleClass().removeAll("started", "ended");
-                getStyleClass().add("ended");
-            } else {
-                float percentage = ChronoUnit.MILLIS.between(start, now) * 100f / ChronoUnit.MILLIS.between(start, end);
-                setStyle("-fx-background-color: linear-gradient(to left, rgba(255, 0, 0, 0.13) 0%, " +
-                        "rgba(255, 0, 0, 0.13) " + String.format("%f", percentage - gradientFeatherProperty.get()) + "%, " +
-                        "rgba(0, 255, 0, 0.13) " + String.format("%f", percentage + gradientFeatherProperty.get()) + "%, rgba(0, 255, 0, 0.13) 100%);");
-                if (useSimplifiedCountdownForExamProperty.get()) {
-                    long hours = ChronoUnit.HOURS.between(now, end);
-                    long minutes = ChronoUnit.MINUTES.between(now, end);
-                    long seconds = ChronoUnit.MINUTES.between(now, end);
-                    if (hours > 0) countLabel.setText(hours + " hrs");
-                    else if (minutes > 0) countLabel.setText(minutes + " min");
-                    else if (seconds > 0) countLabel.setText(seconds + " sec");
-                    else countLabel.setText("STOP");
-                } else {
-                    countLabel.setText(String.format("%02d", ChronoUnit.HOURS.between(now, end)) + ":" + String.format("%02d", ChronoUnit.MINUTES.between(now, end) % 60) + ":" + String.format("%02d", ChronoUnit.SECONDS.between(now, end) % 60));
-                    getStyleClass().removeAll("started", "ended");
-                    getStyleClass().add("started");
-                }
-            }
-        } else {
-            countLabel.setText(date.format(DateTimeFormatter.ofPattern("dd MMM")));
+    public void update(Tick tick) {
+        int changed = renderer.render(exam.getTimeline(), tick.epochMillis, useSimplifiedCountdownForExamProperty.get(), gradientFeatherProperty.get(), PreferenceController.use12HourFormatProperty.get());
+        if (changed == 0) return;
+        if ((changed & ExamHolderRenderer.COUNT_CHANGED) != 0) countLabel.setText(renderer.getCountText());
+        if ((changed & ExamHolderRenderer.TIME_CHANGED) != 0) timeLabel.setText(renderer.getTimeText());
+        if ((changed & ExamHolderRenderer.STYLE_CHANGED) != 0) setStyle(renderer.getStyleText());
+        if ((changed & ExamHolderRenderer.STATE_CHANGED) != 0) {
             getStyleClass().removeAll("started", "ended");
+            String styleClass = renderer.getState().getStyleClass();
+            if (styleClass != null) getStyleClass().add(styleClass);
         }
-        timeLabel.setText(start.format(start.getSecond() == 0 ? PreferenceController.use12HourFormatProperty.get() ? FORMAT_12_HOURS_NO_SECONDS : FORMAT_24_HOURS_NO_SECONDS : PreferenceController.use12HourFormatProperty.get() ? FORMAT_12_HOURS : FORMAT_24_HOURS) +
-                " → " +
-                end.format(end.getSecond() == 0 ? PreferenceController.use12HourFormatProperty.get() ? FORMAT_12_HOURS_NO_SECONDS : FORMAT_24_HOURS_NO_SECONDS : PreferenceController.use12HourFormatProperty.get() ? FORMAT_12_HOURS : FORMAT_24_HOURS));
     }
 
     public Exam getExam() {
@@ -166,23 +170,17 @@ public class ExamHolder extends HBox {
     public ExamHolder setExam(Exam exam) {
         this.exam = exam;
         nameLabel.setText(exam.getName());
-        date = LocalDate.parse(exam.getDate());
-        start = LocalTime.parse(exam.getStart());
-        end = LocalTime.parse(exam.getEnd());
+        renderer.invalidate();
         return this;
     }
 
     public ExamHolder reset() {
         this.exam = null;
-        if (controller.selectedExamHolder == this) {
-            controller.selectedExamHolder = null;
-            getStyleClass().remove("selected");
-        }
         return this;
     }
 
     public void onDupe(ActionEvent e) {
-        controller.exams.add(new Exam(exam.name, LocalDate.parse(exam.getDate()), exam.getStartTimeObj(), exam.getEndTimeObj()));
+        controller.exams.add(new Exam(exam.name, exam.getDateObj(), exam.getStartTimeObj(), exam.getEndTimeObj()));
     }
 
     public void onEdit(ActionEvent e) {
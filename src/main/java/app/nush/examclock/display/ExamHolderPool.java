@@ -0,0 +1,103 @@
+package app.nush.examclock.display;
+
+import app.nush.examclock.controllers.MainController;
+import app.nush.examclock.model.Exam;
+import app.nush.examclock.model.Tick;
+import app.nush.examclock.model.TimeSource;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Stack;
+
+/**
+ * Exam holders of one exam list, the ones on screen and spares to reuse
+ * <p>
+ * Every list gets its own pool, a node can only be shown once, but the holders of all lists
+ * act on the same exams through the same controller
+ */
+public class ExamHolderPool {
+    private final MainController controller;
+    private final Stack<ExamHolder> pool = new Stack<>();
+    /**
+     * Holders of the exams on screen, the list view only asks for those
+     */
+    private final Map<String, ExamHolder> active = new HashMap<>();
+
+    /**
+     * Instantiates a new exam holder pool.
+     *
+     * @param controller the controller
+     */
+    public ExamHolderPool(MainController controller) {
+        this.controller = controller;
+    }
+
+    /**
+     * Gets exam holder by exam
+     *
+     * @param exam the exam
+     * @return the exam holder, null if the exam is not on screen
+     */
+    public ExamHolder get(Exam exam) {
+        return active.get(exam.id);
+    }
+
+    /**
+     * Takes a holder from the pool for an exam scrolled into view
+     *
+     * @param exam the exam
+     * @return the exam holder
+     */
+    public ExamHolder acquire(Exam exam) {
+        ExamHolder examHolder = pool.empty() ? new ExamHolder(controller, exam) : pool.pop().setExam(exam);
+        active.put(exam.id, examHolder);
+        return examHolder;
+    }
+
+    /**
+     * Returns a holder to the pool once its exam left the screen
+     *
+     * @param examHolder the exam holder
+     */
+    public void release(ExamHolder examHolder) {
+        active.remove(examHolder.getExam().id, examHolder);
+        pool.push(examHolder.reset());
+    }
+
+    /**
+     * Fills the pool ahead of the first layout, so the list does not build holders while showing
+     *
+     * @param count how many holders should exist
+     */
+    public void prewarm(int count) {
+        for (int i = pool.size() + active.size(); i < count; i++) pool.push(new ExamHolder(controller));
+    }
+
+    /**
+     * Shows the changes of an exam, if it is on screen
+     *
+     * @param exam the exam
+     */
+    public void refresh(Exam exam) {
+        ExamHolder examHolder = active.get(exam.id);
+        if (examHolder != null) examHolder.setExam(exam).update(TimeSource.tick()); // do not wait for the next second to show it
+    }
+
+    /**
+     * Updates the holders on screen
+     *
+     * @param tick the time to show
+     */
+    public void update(Tick tick) {
+        for (ExamHolder examHolder : active.values()) examHolder.update(tick);
+    }
+
+    /**
+     * Number of holders on screen
+     *
+     * @return the count
+     */
+    public int size() {
+        return active.size();
+    }
+}
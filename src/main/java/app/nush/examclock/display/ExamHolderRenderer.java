@@ -0,0 +1,287 @@
+package app.nush.examclock.display;
+
+import app.nush.examclock.model.ExamTimeline;
+
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Text and style generation for {@link ExamHolder}
+ * <p>
+ * Kept away from any node so it can run (and be benchmarked) on its own.
+ * Everything is cached, a call to {@link #render} only produces new strings when
+ * the displayed second, the visible progress or the state has actually changed.
+ * Outside a running exam nothing changes until the next state boundary, so those renders return straight away
+ */
+public final class ExamHolderRenderer {
+    /**
+     * The count text changed
+     */
+    public static final int COUNT_CHANGED = 1;
+    /**
+     * The inline progress style changed
+     */
+    public static final int STYLE_CHANGED = 1 << 1;
+    /**
+     * The state (and so the style classes) changed
+     */
+    public static final int STATE_CHANGED = 1 << 2;
+    /**
+     * The time label text changed
+     */
+    public static final int TIME_CHANGED = 1 << 3;
+
+    private static final DateTimeFormatter FORMAT_12_HOURS = DateTimeFormatter.ofPattern("hh:mm:ss a");
+    private static final DateTimeFormatter FORMAT_24_HOURS = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final DateTimeFormatter FORMAT_12_HOURS_NO_SECONDS = DateTimeFormatter.ofPattern("hh:mm a");
+    private static final DateTimeFormatter FORMAT_24_HOURS_NO_SECONDS = DateTimeFormatter.ofPattern("HH:mm");
+    private static final DateTimeFormatter FORMAT_DATE = DateTimeFormatter.ofPattern("dd MMM");
+    /**
+     * Progress is tracked in steps of 0.1%, anything finer is not visible on the gradient
+     */
+    private static final int PROGRESS_STEPS = 1000;
+
+    private final char[] countBuffer = new char[24];
+    private final StringBuilder styleBuilder = new StringBuilder(160);
+    private ExamTimeline timeline;
+    private State state;
+    private long countKey;
+    private String countText = "";
+    private int progressStep;
+    private double feather;
+    private String styleText = "";
+    private boolean use12Hour;
+    private String timeText = "";
+    /**
+     * Output stays the same while now is in [staticFrom, staticUntil), empty while running
+     */
+    private long staticFrom;
+    private long staticUntil;
+
+    /**
+     * Exam states, each maps to at most one style class
+     */
+    public enum State {
+        /**
+         * Not today, shows the date
+         */
+        OTHER_DAY(null),
+        /**
+         * Today but not started, shows the duration
+         */
+        PENDING(null),
+        /**
+         * Running, shows the countdown and progress
+         */
+        RUNNING("started"),
+        /**
+         * Ended today
+         */
+        ENDED("ended");
+
+        private final String styleClass;
+
+        State(String styleClass) {
+            this.styleClass = styleClass;
+        }
+
+        public String getStyleClass() {
+            return styleClass;
+        }
+    }
+
+    /**
+     * Drops all cached output, the next render reports everything as changed
+     */
+    public void invalidate() {
+        timeline = null;
+        state = null;
+        countKey = Long.MIN_VALUE;
+        progressStep = -1;
+        feather = Double.NaN;
+        staticFrom = staticUntil = 0;
+    }
+
+    /**
+     * Renders the exam at a given instant
+     *
+     * @param timeline    the exam timeline
+     * @param nowMillis   the current epoch millis
+     * @param simplified  if the simplified countdown is used
+     * @param feather     the gradient feather in percent
+     * @param use12Hour   if 12 hour format is used for the time label
+     * @return bitmask of what changed, see the constants
+     */
+    public int render(ExamTimeline timeline, long nowMillis, boolean simplified, double feather, boolean use12Hour) {
+        if (this.timeline == timeline && this.use12Hour == use12Hour && nowMillis >= staticFrom && nowMillis < staticUntil)
+            return 0;
+        int changed = 0;
+        if (this.timeline != timeline || this.use12Hour != use12Hour) {
+            if (this.timeline != timeline) state = null; // state, count and static window all depend on the timeline
+            this.timeline = timeline;
+            this.use12Hour = use12Hour;
+            timeText = formatTime(timeline, use12Hour);
+            changed |= TIME_CHANGED;
+        }
+
+        State newState;
+        if (!timeline.isOnExamDay(nowMillis)) newState = State.OTHER_DAY;
+        else if (nowMillis < timeline.getStartMillis()) newState = State.PENDING;
+        else if (nowMillis > timeline.getEndMillis()) newState = State.ENDED;
+        else newState = State.RUNNING;
+        if (newState != state) {
+            state = newState;
+            countKey = Long.MIN_VALUE;
+            progressStep = -1;
+            if (newState != State.RUNNING && !styleText.isEmpty()) {
+                styleText = "";
+                changed |= STYLE_CHANGED;
+            }
+            changed |= STATE_CHANGED;
+            switch (newState) {
+                case OTHER_DAY:
+                    if (nowMillis < timeline.getDayStartMillis()) {
+                        staticFrom = Long.MIN_VALUE;
+                        staticUntil = timeline.getDayStartMillis();
+                    } else {
+                        staticFrom = timeline.getDayEndMillis();
+                        staticUntil = Long.MAX_VALUE;
+                    }
+                    break;
+                case PENDING:
+                    staticFrom = timeline.getDayStartMillis();
+                    staticUntil = timeline.getStartMillis();
+                    break;
+                case ENDED:
+                    staticFrom = timeline.getEndMillis() + 1;
+                    staticUntil = timeline.getDayEndMillis();
+                    break;
+                default:
+                    staticFrom = staticUntil = 0;
+            }
+        }
+
+        switch (newState) {
+            case OTHER_DAY:
+                if (countKey != 0) {
+                    countKey = 0;
+                    countText = timeline.getDate().format(FORMAT_DATE);
+                    changed |= COUNT_CHANGED;
+                }
+                break;
+            case PENDING:
+                if (countKey != 0) {
+                    countKey = 0;
+                    countText = formatDuration(timeline.getDurationSeconds());
+                    changed |= COUNT_CHANGED;
+                }
+                break;
+            case ENDED:
+                if (countKey != 0) {
+                    countKey = 0;
+                    countText = "00:00:00";
+                    changed |= COUNT_CHANGED;
+                }
+                break;
+            case RUNNING:
+                long remaining = (timeline.getEndMillis() - nowMillis) / 1000;
+                // negative keys for the simplified countdown so switching modes is noticed
+                long key = simplified ? -1 - remaining : remaining;
+                if (key != countKey) {
+                    countKey = key;
+                    String text = simplified ? formatSimplified(remaining) : formatDuration(remaining);
+                    if (!text.equals(countText)) {
+                        countText = text;
+                        changed |= COUNT_CHANGED;
+                    }
+                }
+                int step = (int) ((nowMillis - timeline.getStartMillis()) * PROGRESS_STEPS / Math.max(1, timeline.getDurationMillis()));
+                if (step != progressStep || feather != this.feather) {
+                    progressStep = step;
+                    this.feather = feather;
+                    styleText = formatStyle(step * 100d / PROGRESS_STEPS, feather);
+                    changed |= STYLE_CHANGED;
+                }
+                break;
+        }
+        return changed;
+    }
+
+    private String formatDuration(long seconds) {
+        int length = writeNumber(countBuffer, 0, seconds / 3600);
+        countBuffer[length++] = ':';
+        length = writeNumber(countBuffer, length, seconds / 60 % 60);
+        countBuffer[length++] = ':';
+        length = writeNumber(countBuffer, length, seconds % 60);
+        return new String(countBuffer, 0, length);
+    }
+
+    private static String formatSimplified(long seconds) {
+        if (seconds >= 3600) return seconds / 3600 + " hrs";
+        if (seconds >= 60) return seconds / 60 + " min";
+        if (seconds > 0) return seconds + " sec";
+        return "STOP";
+    }
+
+    /**
+     * Writes a number with at least two digits
+     */
+    private static int writeNumber(char[] buffer, int offset, long value) {
+        if (value < 10) {
+            buffer[offset++] = '0';
+            buffer[offset++] = (char) ('0' + value);
+            return offset;
+        }
+        int digits = 0;
+        for (long v = value; v > 0; v /= 10) digits++;
+        for (int i = offset + digits - 1; i >= offset; i--, value /= 10) buffer[i] = (char) ('0' + value % 10);
+        return offset + digits;
+    }
+
+    private String formatStyle(double percentage, double feather) {
+        styleBuilder.setLength(0);
+        styleBuilder.append("-fx-background-color: linear-gradient(to left, rgba(255, 0, 0, 0.13) 0%, rgba(255, 0, 0, 0.13) ");
+        appendPercentage(styleBuilder, percentage - feather)
+                .append("%, rgba(0, 255, 0, 0.13) ");
+        appendPercentage(styleBuilder, percentage + feather)
+                .append("%, rgba(0, 255, 0, 0.13) 100%);");
+        return styleBuilder.toString();
+    }
+
+    /**
+     * Appends a value with three decimals, never in scientific notation, which CSS cannot parse
+     */
+    private static StringBuilder appendPercentage(StringBuilder builder, double value) {
+        long thousandths = Math.round(value * 1000);
+        if (thousandths < 0) {
+            builder.append('-');
+            thousandths = -thousandths;
+        }
+        long fraction = thousandths % 1000;
+        builder.append(thousandths / 1000).append('.');
+        if (fraction < 100) builder.append('0');
+        if (fraction < 10) builder.append('0');
+        return builder.append(fraction);
+    }
+
+    private static String formatTime(ExamTimeline timeline, boolean use12Hour) {
+        return timeline.getStart().format(timeline.getStart().getSecond() == 0 ? use12Hour ? FORMAT_12_HOURS_NO_SECONDS : FORMAT_24_HOURS_NO_SECONDS : use12Hour ? FORMAT_12_HOURS : FORMAT_24_HOURS) +
+                " → " +
+                timeline.getEnd().format(timeline.getEnd().getSecond() == 0 ? use12Hour ? FORMAT_12_HOURS_NO_SECONDS : FORMAT_24_HOURS_NO_SECONDS : use12Hour ? FORMAT_12_HOURS : FORMAT_24_HOURS);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public String getCountText() {
+        return countText;
+    }
+
+    public String getStyleText() {
+        return styleText;
+    }
+
+    public String getTimeText() {
+        return timeText;
+    }
+}
@@ -0,0 +1,53 @@
+package app.nush.examclock.display;
+
+import app.nush.examclock.model.Exam;
+import app.nush.examclock.model.TimeSource;
+import javafx.scene.control.ContentDisplay;
+import javafx.scene.control.ListCell;
+
+/**
+ * Exam list cell, borrows an {@link ExamHolder} from the pool while it shows an exam
+ * <p>
+ * The list view only creates cells for the rows on screen and reuses them while scrolling,
+ * so only visible exams have a holder and get updated every second
+ */
+public class ExamListCell extends ListCell<Exam> {
+    private final ExamHolderPool pool;
+    private ExamHolder examHolder;
+
+    /**
+     * Instantiates a new exam list cell.
+     *
+     * @param pool the pool of the list
+     */
+    public ExamListCell(ExamHolderPool pool) {
+        this.pool = pool;
+        setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
+    }
+
+    @Override
+    protected void updateItem(Exam exam, boolean empty) {
+        super.updateItem(exam, empty);
+        if (empty || exam == null) {
+            if (examHolder != null) {
+                pool.release(examHolder);
+                examHolder = null;
+            }
+            setGraphic(null);
+            return;
+        }
+        if (examHolder != null && examHolder.getExam() == exam) return; // relayout, same exam
+        if (examHolder != null) pool.release(examHolder);
+        examHolder = pool.acquire(exam);
+        examHolder.update(TimeSource.tick()); // do not wait for the next second to show it
+        setGraphic(examHolder);
+    }
+
+    @Override
+    protected void layoutChildren() {
+        super.layoutChildren();
+        // labeled cells size their graphic to its preferred width, the holder should span the whole row
+        if (examHolder != null) examHolder.resizeRelocate(snappedLeftInset(), snappedTopInset(),
+                getWidth() - snappedLeftInset() - snappedRightInset(), getHeight() - snappedTopInset() - snappedBottomInset());
+    }
+}
@@ -0,0 +1,71 @@
+package app.nush.examclock.display;
+
+import app.nush.examclock.model.Tick;
+import app.nush.examclock.model.TimeSource;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.util.Duration;
+
+import java.util.function.Consumer;
+
+/**
+ * The original scheduler, a 16 ms timeline that runs every frame no matter what
+ * <p>
+ * Kept as a fallback, ignores low power
+ */
+public class FixedRateScheduler implements RefreshScheduler {
+    private final Timeline timeline;
+    private Consumer<Tick> onPulse = tick -> {
+    };
+    private Consumer<Tick> onSecond = tick -> {
+    };
+    private long lastSecond = -1;
+
+    /**
+     * Instantiates a new fixed rate scheduler.
+     */
+    public FixedRateScheduler() {
+        timeline = new Timeline();
+        timeline.setCycleCount(Timeline.INDEFINITE);
+        timeline.getKeyFrames().add(new KeyFrame(Duration.millis(16), e -> {
+            Tick tick = TimeSource.tick();
+            onPulse.accept(tick);
+            long second = tick.epochMillis / 1000;
+            if (second != lastSecond) {
+                lastSecond = second;
+                onSecond.accept(tick);
+            }
+        }));
+    }
+
+    @Override
+    public void setOnPulse(Consumer<Tick> onPulse) {
+        this.onPulse = onPulse;
+    }
+
+    @Override
+    public void setOnSecond(Consumer<Tick> onSecond) {
+        this.onSecond = onSecond;
+    }
+
+    @Override
+    public void play() {
+        timeline.stop();
+        lastSecond = -1;
+        timeline.play();
+    }
+
+    @Override
+    public void stop() {
+        timeline.stop();
+    }
+
+    @Override
+    public void dispose() {
+        timeline.stop();
+    }
+
+    @Override
+    public void setLowPower(boolean lowPower) {
+    }
+}
@@ -0,0 +1,50 @@
+package app.nush.examclock.display;
+
+import app.nush.examclock.model.Tick;
+
+import java.util.function.Consumer;
+
+/**
+ * Drives the render loop
+ * <p>
+ * Work is split in two, pulses for things that move smoothly (the analogue hands),
+ * and seconds for everything that only changes once a second (digital clock, exams).
+ * Both get the same {@link Tick} when they run together, so they always agree on the time
+ */
+public interface RefreshScheduler {
+    /**
+     * Sets what runs on every animation pulse
+     *
+     * @param onPulse the pulse callback
+     */
+    void setOnPulse(Consumer<Tick> onPulse);
+
+    /**
+     * Sets what runs once every exam time second
+     *
+     * @param onSecond the second callback
+     */
+    void setOnSecond(Consumer<Tick> onSecond);
+
+    /**
+     * Starts (or restarts) the scheduler
+     */
+    void play();
+
+    /**
+     * Stops the scheduler
+     */
+    void stop();
+
+    /**
+     * Stops the scheduler for good and frees its threads, it cannot be played again
+     */
+    void dispose();
+
+    /**
+     * Low power is used when nobody can see the window, e.g. when it is minimized
+     *
+     * @param lowPower if the window is hidden
+     */
+    void setLowPower(boolean lowPower);
+}
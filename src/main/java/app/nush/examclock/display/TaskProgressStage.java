@@ -0,0 +1,45 @@
+package app.nush.examclock.display;
+
+import javafx.concurrent.Task;
+import javafx.concurrent.Worker;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+/**
+ * Small window showing the progress of a background task, closes itself when the task is done
+ */
+public class TaskProgressStage extends Stage {
+
+    /**
+     * Instantiates a new task progress stage.
+     *
+     * @param owner the owner
+     * @param title the title
+     * @param task  the task
+     */
+    public TaskProgressStage(Window owner, String title, Task<?> task) {
+        ProgressBar progressBar = new ProgressBar();
+        progressBar.setPrefWidth(300);
+        progressBar.progressProperty().bind(task.progressProperty());
+        Label message = new Label();
+        message.textProperty().bind(task.messageProperty());
+        VBox vbox = new VBox(10, message, progressBar);
+        vbox.setPadding(new Insets(10));
+        setScene(new Scene(vbox));
+        setTitle(title);
+        setResizable(false);
+        if (owner != null) initOwner(owner);
+        initModality(Modality.WINDOW_MODAL);
+        setOnCloseRequest(e -> task.cancel());
+        task.stateProperty().addListener((observable, oldValue, newValue) -> {
+            if (newValue == Worker.State.SUCCEEDED || newValue == Worker.State.FAILED || newValue == Worker.State.CANCELLED)
+                close();
+        });
+    }
+}
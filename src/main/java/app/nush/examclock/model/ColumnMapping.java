@@ -0,0 +1,151 @@
+package app.nush.examclock.model;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Which spreadsheet column holds which exam field, worked out from the header row
+ * <p>
+ * Headers are matched ignoring case, spaces and punctuation, so "Start Time", "start_time" and "STARTTIME" are the same.
+ * Name, date and start are required, the end can also come from a duration column or a range like "8:00 - 10:00"
+ */
+public final class ColumnMapping {
+    private static final String[] ID = {"id", "examid", "uid", "code", "papercode"};
+    private static final String[] NAME = {"name", "exam", "examname", "subject", "paper", "title", "course", "module"};
+    private static final String[] DATE = {"date", "examdate", "day"};
+    private static final String[] START = {"start", "starttime", "from", "begin", "time"};
+    private static final String[] END = {"end", "endtime", "to", "finish"};
+    private static final String[] DURATION = {"duration", "durationmins", "durationminutes", "length", "mins", "minutes"};
+    private static final String[] VENUE = {"venue", "room", "location", "hall", "place"};
+
+    final int id;
+    final int name;
+    final int date;
+    final int start;
+    final int end;
+    final int duration;
+    final int venue;
+
+    private ColumnMapping(List<String> header) {
+        id = find(header, ID);
+        name = find(header, NAME);
+        date = find(header, DATE);
+        start = find(header, START);
+        end = find(header, END);
+        duration = find(header, DURATION);
+        venue = find(header, VENUE);
+    }
+
+    /**
+     * Maps columns by their header
+     *
+     * @param header the header row
+     * @return the mapping
+     * @throws IOException if a required column is missing
+     */
+    public static ColumnMapping detect(List<String> header) throws IOException {
+        ColumnMapping mapping = new ColumnMapping(header);
+        if (mapping.name < 0) throw new IOException("No exam name column, expected one of " + String.join(", ", NAME));
+        if (mapping.date < 0) throw new IOException("No date column, expected one of " + String.join(", ", DATE));
+        if (mapping.start < 0) throw new IOException("No start time column, expected one of " + String.join(", ", START));
+        return mapping;
+    }
+
+    private static int find(List<String> header, String[] aliases) {
+        for (String alias : aliases) {
+            for (int i = 0; i < header.size(); i++) if (normalize(header.get(i)).equals(alias)) return i;
+        }
+        return -1;
+    }
+
+    private static String normalize(String header) {
+        StringBuilder builder = new StringBuilder(header.length());
+        for (int i = 0; i < header.length(); i++) {
+            char c = header.charAt(i);
+            if (Character.isLetterOrDigit(c)) builder.append(Character.toLowerCase(c));
+        }
+        return builder.toString();
+    }
+
+    private static String cell(List<String> record, int column) {
+        if (column < 0 || column >= record.size()) return null;
+        String value = record.get(column).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Reads one data row
+     *
+     * @param record the cells
+     * @param row    the row number
+     * @return the row
+     */
+    TimetableRow map(List<String> record, int row) {
+        String name = cell(record, this.name);
+        if (name == null) return TimetableRow.invalid(row, "no exam name");
+        String dateText = cell(record, this.date);
+        LocalDate date = DateParser.parse(dateText);
+        if (date == null) return TimetableRow.invalid(row, dateText == null ? "no date" : "invalid date " + dateText);
+        String startText = cell(record, this.start);
+        String endText = cell(record, this.end);
+        if (startText != null && endText == null && cell(record, this.duration) == null) {
+            // a single time column may hold the whole range
+            int dash = startText.indexOf('-');
+            if (dash > 0) {
+                endText = startText.substring(dash + 1);
+                startText = startText.substring(0, dash);
+            }
+        }
+        LocalTime start = TimeParser.parse(startText);
+        if (start == null) return TimetableRow.invalid(row, startText == null ? "no start time" : "invalid start time " + startText);
+        LocalTime end;
+        if (endText != null) {
+            end = TimeParser.parse(endText);
+            if (end == null) return TimetableRow.invalid(row, "invalid end time " + endText);
+        } else {
+            String durationText = cell(record, this.duration);
+            int minutes = parseMinutes(durationText);
+            if (minutes < 0) return TimetableRow.invalid(row, durationText == null ? "no end time or duration" : "invalid duration " + durationText);
+            if (start.toSecondOfDay() / 60 + minutes >= 24 * 60) return TimetableRow.invalid(row, "ends after midnight");
+            end = start.plusMinutes(minutes);
+        }
+        return new TimetableRow(row, cell(record, id), name, cell(record, venue), date, start, end, null);
+    }
+
+    /**
+     * Parses a duration, plain minutes (90), hours and minutes (1:30) or with units (1h30m, 2 hours)
+     *
+     * @param text the text
+     * @return the minutes, -1 if invalid
+     */
+    static int parseMinutes(String text) {
+        if (text == null) return -1;
+        String lower = text.toLowerCase(Locale.ROOT).replace(" ", "");
+        int hours = 0;
+        int minutes = 0;
+        int value = -1;
+        boolean sawHours = false;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (value > 10000) return -1;
+                value = Math.max(value, 0) * 10 + c - '0';
+            } else if ((c == 'h' || c == ':') && value >= 0 && !sawHours) {
+                hours = value;
+                value = -1;
+                sawHours = true;
+                while (i + 1 < lower.length() && Character.isLetter(lower.charAt(i + 1))) i++; // hr, hrs, hours
+            } else if (c == 'm' && value >= 0) {
+                minutes = value;
+                value = -1;
+                while (i + 1 < lower.length() && Character.isLetter(lower.charAt(i + 1))) i++; // min, mins, minutes
+            } else return -1;
+        }
+        if (value >= 0) minutes = value;
+        int total = hours * 60 + minutes;
+        return total > 0 ? total : -1;
+    }
+}
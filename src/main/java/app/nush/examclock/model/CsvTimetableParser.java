@@ -0,0 +1,101 @@
+package app.nush.examclock.model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Spreadsheet exports, RFC 4180 CSV with a header row
+ * <p>
+ * Quoted cells may hold delimiters, doubled quotes and line breaks. The delimiter is whichever of
+ * comma, semicolon or tab appears most in the header, since some locales export with semicolons
+ */
+public class CsvTimetableParser implements TimetableParser {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    @Override
+    public void parse(Reader in, Consumer<TimetableRow> rows) throws IOException {
+        BufferedReader reader = new BufferedReader(in, BUFFER_SIZE);
+        reader.mark(BUFFER_SIZE);
+        if (reader.read() != '\uFEFF') reader.reset(); // byte order mark from excel
+        char delimiter = sniffDelimiter(reader);
+        List<String> record = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        if (!readRecord(reader, delimiter, record, cell)) throw new IOException("The file is empty");
+        ColumnMapping mapping = ColumnMapping.detect(record);
+        int row = 0;
+        while (readRecord(reader, delimiter, record, cell)) {
+            row++;
+            if (record.size() == 1 && record.get(0).trim().isEmpty()) continue; // blank line
+            rows.accept(mapping.map(record, row));
+        }
+    }
+
+    private static char sniffDelimiter(BufferedReader reader) throws IOException {
+        reader.mark(BUFFER_SIZE);
+        int commas = 0;
+        int semicolons = 0;
+        int tabs = 0;
+        boolean quoted = false;
+        for (int i = 0, c; i < BUFFER_SIZE - 1 && (c = reader.read()) != -1; i++) {
+            if (c == '"') quoted = !quoted;
+            else if (quoted) continue;
+            else if (c == '\n' || c == '\r') break;
+            else if (c == ',') commas++;
+            else if (c == ';') semicolons++;
+            else if (c == '\t') tabs++;
+        }
+        reader.reset();
+        if (semicolons > commas && semicolons >= tabs) return ';';
+        if (tabs > commas) return '\t';
+        return ',';
+    }
+
+    /**
+     * Reads one record into the list, reusing it
+     *
+     * @return false at the end of the file
+     */
+    private static boolean readRecord(BufferedReader reader, char delimiter, List<String> record, StringBuilder cell) throws IOException {
+        record.clear();
+        cell.setLength(0);
+        int c = reader.read();
+        if (c == -1) return false;
+        boolean quoted = false;
+        boolean cellStart = true;
+        while (c != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') cell.append('"');
+                    else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else cell.append((char) c);
+            } else if (c == '"' && cellStart) {
+                quoted = true;
+                cellStart = false;
+            } else if (c == delimiter) {
+                record.add(cell.toString());
+                cell.setLength(0);
+                cellStart = true;
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r') {
+                    reader.mark(1);
+                    if (reader.read() != '\n') reader.reset();
+                }
+                break;
+            } else {
+                cell.append((char) c);
+                cellStart = false;
+            }
+            c = reader.read();
+        }
+        record.add(cell.toString());
+        return true;
+    }
+}
@@ -0,0 +1,109 @@
+package app.nush.examclock.model;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Parser for dates as they appear in spreadsheets and timetables, the date counterpart of {@link TimeParser}
+ * <p>
+ * Accepts 2020-11-02 and 2020/11/02, day first 2/11/2020, 02-11-20 and 2.11.2020,
+ * and month names like "2 Nov 2020", "November 2nd, 2020" or "Mon, 2 Nov 2020".
+ * Two digit years are in the 2000s. Never throws, a bad date is just null
+ */
+public final class DateParser {
+    private static final String[] MONTHS = {"jan", "feb", "mar", "apr", "may", "jun", "jul", "aug", "sep", "oct", "nov", "dec"};
+
+    private DateParser() {
+    }
+
+    /**
+     * Parses a date
+     *
+     * @param text the text
+     * @return the date, null if it is not a valid date
+     */
+    public static LocalDate parse(CharSequence text) {
+        if (text == null) return null;
+        int[] numbers = new int[3];
+        int[] digits = new int[3];
+        int numberCount = 0;
+        int month = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (numberCount == 3) return null;
+                int value = 0;
+                int start = i;
+                while (i < length && text.charAt(i) >= '0' && text.charAt(i) <= '9' && i - start < 9)
+                    value = value * 10 + text.charAt(i++) - '0';
+                numbers[numberCount] = value;
+                digits[numberCount++] = i - start;
+            } else if (Character.isLetter(c)) {
+                int start = i;
+                while (i < length && Character.isLetter(text.charAt(i))) i++;
+                int word = monthOf(text, start, i);
+                if (word > 0) {
+                    if (month != 0) return null;
+                    month = word;
+                } else if (!isOrdinal(text, start, i) && (numberCount > 0 || month != 0 || i - start > 9))
+                    return null; // other than the 2nd in 2nd Nov, words can only be a weekday in front
+            } else if (c == ' ' || c == '-' || c == '/' || c == '.' || c == ',') i++;
+            else return null;
+        }
+
+        int year;
+        int day;
+        if (month != 0) {
+            if (numberCount != 2) return null;
+            int yearIndex = digits[0] == 4 || (digits[1] != 4 && numbers[0] > 31) ? 0 : 1;
+            year = numbers[yearIndex];
+            day = numbers[1 - yearIndex];
+            if (digits[yearIndex] == 2) year += 2000;
+            else if (digits[yearIndex] != 4) return null;
+        } else {
+            if (numberCount != 3) return null;
+            if (digits[0] == 4) {
+                year = numbers[0];
+                month = numbers[1];
+                day = numbers[2];
+            } else {
+                day = numbers[0];
+                month = numbers[1];
+                year = numbers[2];
+                if (digits[2] == 2) year += 2000;
+                else if (digits[2] != 4) return null;
+            }
+        }
+        if (month < 1 || month > 12 || day < 1 || year < 1) return null;
+        if (day > YearMonth.of(year, month).lengthOfMonth()) return null;
+        return LocalDate.of(year, month, day);
+    }
+
+    /**
+     * Month of a word, by its first three letters
+     *
+     * @return 1 to 12, 0 if not a month
+     */
+    private static int monthOf(CharSequence text, int start, int end) {
+        if (end - start < 3) return 0;
+        for (int m = 0; m < MONTHS.length; m++) {
+            String month = MONTHS[m];
+            if (Character.toLowerCase(text.charAt(start)) == month.charAt(0)
+                    && Character.toLowerCase(text.charAt(start + 1)) == month.charAt(1)
+                    && Character.toLowerCase(text.charAt(start + 2)) == month.charAt(2)) return m + 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Is the word st, nd, rd or th straight after a number
+     */
+    private static boolean isOrdinal(CharSequence text, int start, int end) {
+        if (end - start != 2 || start == 0 || !Character.isDigit(text.charAt(start - 1))) return false;
+        char a = Character.toLowerCase(text.charAt(start));
+        char b = Character.toLowerCase(text.charAt(start + 1));
+        return (a == 's' && b == 't') || (a == 'n' && b == 'd') || (a == 'r' && b == 'd') || (a == 't' && b == 'h');
+    }
+}
@@ -31,6 +31,15 @@ public class Exam {
      * The Ending time.
      */
     public String end;
+    /**
+     * Clock state version of the last change to this exam, 0 if never changed since it was loaded
+     * Used to sync only what changed with the server
+     */
+    public long version;
+    /**
+     * Parsed copy of date, start and end, never serialized
+     */
+    private transient ExamTimeline timeline;
 
     /**
      * Instantiates a new Exam
@@ -77,13 +86,38 @@ public class Exam {
         return new String(Base64.getEncoder().encode(bytes));
     }
 
+    /**
+     * Gets the parsed timeline, only parses again if date, start or end were reassigned
+     *
+     * @return the timeline
+     */
+    public ExamTimeline getTimeline() {
+        ExamTimeline timeline = this.timeline;
+        if (timeline == null || !timeline.isParsedFrom(date, start, end))
+            this.timeline = timeline = ExamTimeline.parse(date, start, end);
+        return timeline;
+    }
+
+    /**
+     * Moves the exam to another date and time
+     *
+     * @param date  the date
+     * @param start the start
+     * @param end   the end
+     */
+    public void setTimes(LocalDate date, LocalTime start, LocalTime end) {
+        this.date = date.toString();
+        this.start = start.toString();
+        this.end = end.toString();
+    }
+
     /**
      * Is the exam running right now
      *
      * @return running
      */
     public boolean isRunning() {
-        return LocalDate.parse(date).isEqual(LocalDate.now()) && LocalTime.parse(start).isBefore(LocalTime.now()) && LocalTime.parse(end).isAfter(LocalTime.now());
+        return getTimeline().isRunning(TimeSource.now());
     }
 
     /**
@@ -92,8 +126,7 @@ public class Exam {
      * @return ended
      */
     public boolean hasEnded() {
-        LocalDate date = LocalDate.parse(this.date);
-        return date.isBefore(LocalDate.now()) || date.isEqual(LocalDate.now()) && LocalTime.parse(end).isBefore(LocalTime.now());
+        return getTimeline().hasEnded(TimeSource.now());
     }
 
     public String getID() {
@@ -116,12 +149,16 @@ public class Exam {
         return end;
     }
 
+    public LocalDate getDateObj() {
+        return getTimeline().getDate();
+    }
+
     public LocalTime getStartTimeObj() {
-        return LocalTime.parse(start);
+        return getTimeline().getStart();
     }
 
     public LocalTime getEndTimeObj() {
-        return LocalTime.parse(end);
+        return getTimeline().getEnd();
     }
 
     @Override
@@ -0,0 +1,57 @@
+package app.nush.examclock.model;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Streams exams to a file, same format as before, a JSON array of exams
+ * <p>
+ * Written to a temp file first so a failed export never leaves half a file behind
+ */
+public final class ExamExporter {
+    /**
+     * How often progress is reported
+     */
+    private static final int PROGRESS_STEP = 500;
+    private static final Gson gson = new Gson();
+
+    private ExamExporter() {
+    }
+
+    /**
+     * Writes exams to a file
+     *
+     * @param file     the file
+     * @param exams    the exams, must not change while writing
+     * @param progress receives the number of exams written so far
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path file, List<Exam> exams, IntConsumer progress) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             JsonWriter writer = new JsonWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1))) {
+            writer.beginArray();
+            for (int i = 0; i < exams.size(); i++) {
+                gson.toJson(exams.get(i), Exam.class, writer);
+                if ((i + 1) % PROGRESS_STEP == 0) progress.accept(i + 1);
+            }
+            writer.endArray();
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        progress.accept(exams.size());
+    }
+}
@@ -0,0 +1,150 @@
+package app.nush.examclock.model;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.util.*;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Streams an exported exam file, the file is never held in memory as a whole
+ * <p>
+ * Every record is validated on its own, a bad one is skipped and reported instead of failing the import.
+ * Valid exams are handed over in batches of {@link #BATCH_SIZE}, duplicate ids keep the first one
+ */
+public final class ExamImporter {
+    /**
+     * Max exams handed over at once
+     */
+    public static final int BATCH_SIZE = 500;
+    /**
+     * Only the first few problems are kept for the summary
+     */
+    private static final int MAX_PROBLEMS = 20;
+    private static final Gson gson = new Gson();
+    private static final TypeAdapter<JsonElement> elementAdapter = gson.getAdapter(JsonElement.class);
+
+    private ExamImporter() {
+    }
+
+    /**
+     * Reads an exam file
+     *
+     * @param file     the file, a JSON array of exams
+     * @param batches  receives the valid exams, in order
+     * @param progress receives the fraction of the file read so far
+     * @return what was imported and skipped
+     * @throws IOException          if the file cannot be read
+     * @throws InterruptedException if interrupted while handing over a batch
+     */
+    public static Result read(Path file, BatchConsumer batches, DoubleConsumer progress) throws IOException, InterruptedException {
+        Result result = new Result();
+        Set<String> ids = new HashSet<>();
+        List<Exam> batch = new ArrayList<>(BATCH_SIZE);
+        int index = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             JsonReader reader = new JsonReader(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), -1))) {
+            double size = Math.max(1, channel.size());
+            try {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    JsonElement element = elementAdapter.read(reader);
+                    Exam exam = null;
+                    String problem;
+                    try {
+                        exam = gson.fromJson(element, Exam.class);
+                        problem = validate(exam);
+                    } catch (JsonParseException | IllegalStateException e) {
+                        problem = "not an exam";
+                    }
+                    if (problem == null && !ids.add(exam.id)) problem = "duplicate id " + exam.id;
+                    if (problem != null) result.skip(index, problem);
+                    else {
+                        batch.add(exam);
+                        if (batch.size() == BATCH_SIZE) {
+                            result.imported += batch.size();
+                            batches.accept(batch);
+                            batch = new ArrayList<>(BATCH_SIZE);
+                            progress.accept(channel.position() / size);
+                        }
+                    }
+                    index++;
+                }
+                reader.endArray();
+            } catch (IOException | JsonParseException | IllegalStateException e) {
+                // the rest of the file cannot be trusted, keep what was read before
+                result.error = "Unreadable after record " + index + ": " + e.getMessage();
+            }
+        }
+        if (!batch.isEmpty()) {
+            result.imported += batch.size();
+            batches.accept(batch);
+        }
+        progress.accept(1);
+        return result;
+    }
+
+    /**
+     * Checks an exam
+     *
+     * @param exam the exam
+     * @return what is wrong with it, null if nothing
+     */
+    static String validate(Exam exam) {
+        if (exam == null) return "not an exam";
+        if (exam.id == null || exam.id.isEmpty()) return "no id";
+        if (exam.name == null || exam.name.isEmpty()) return "no name";
+        if (exam.date == null || exam.start == null || exam.end == null) return "missing date or time";
+        try {
+            ExamTimeline timeline = exam.getTimeline();
+            if (timeline.getEnd().isBefore(timeline.getStart())) return "ends before it starts";
+        } catch (DateTimeException e) {
+            return "invalid date or time";
+        }
+        return null;
+    }
+
+    /**
+     * Receives batches of valid exams
+     */
+    public interface BatchConsumer {
+        void accept(List<Exam> batch) throws InterruptedException;
+    }
+
+    /**
+     * Outcome of an import
+     */
+    public static final class Result {
+        /**
+         * Number of exams handed over
+         */
+        public int imported;
+        /**
+         * Number of records skipped
+         */
+        public int skipped;
+        /**
+         * The first few skipped records and why
+         */
+        public final List<String> problems = new ArrayList<>();
+        /**
+         * Why reading stopped early, null if the whole file was read
+         */
+        public String error;
+
+        private void skip(int index, String problem) {
+            skipped++;
+            if (problems.size() < MAX_PROBLEMS) problems.add("Record " + index + ": " + problem);
+        }
+    }
+}
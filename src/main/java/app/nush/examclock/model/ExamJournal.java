@@ -0,0 +1,397 @@
+package app.nush.examclock.model;
+
+import com.google.gson.Gson;
+import javafx.collections.ListChangeListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Append only, memory mapped exam store
+ * <p>
+ * Every add, edit and delete is appended as it happens, so nothing is lost if the power goes out.
+ * Records are [body length][crc][type][version][key length][key][value], a torn record at the end fails
+ * its crc and everything before it is kept.
+ * Exams are kept in list order, an edit keeps its place and an exam put anywhere but the end rewrites the exams after it.
+ * Compaction writes only the live exams to the next generation file (exams.N.journal) and switches over
+ * with an atomic rename, the old generation is deleted once it is unmapped.
+ * Writes happen on a background thread, listeners only serialize
+ */
+public class ExamJournal implements Closeable {
+    private static final int MAGIC = 0x45584A31; // EXJ1
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte STATE = 3;
+    /**
+     * Body length and crc
+     */
+    private static final int PREFIX = 8;
+    /**
+     * Type, version and key length
+     */
+    private static final int BODY_HEADER = 1 + 8 + 2;
+    private static final int INITIAL_SIZE = 1 << 20;
+    private static final Pattern FILE_NAME = Pattern.compile("exams\\.(\\d+)\\.journal");
+    private static final Gson gson = new Gson();
+
+    private final Path directory;
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+        Thread thread = new Thread(runnable, "Exam Journal");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * Latest serialized exam by id in list order, what compaction writes out
+     */
+    private final Map<String, byte[]> live = new LinkedHashMap<>();
+    private final CRC32 crc = new CRC32();
+    private long generation;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int records;
+    private long stateVersion;
+    /**
+     * Set while the journal itself is filling the exam list, FX thread only
+     */
+    private boolean suspended;
+
+    private ExamJournal(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens the latest journal in a directory, reading it in full
+     *
+     * @param directory the directory
+     * @return the journal
+     * @throws IOException if it cannot be opened
+     */
+    public static ExamJournal open(Path directory) throws IOException {
+        ExamJournal journal = new ExamJournal(directory);
+        journal.openLatest();
+        return journal;
+    }
+
+    private Path fileFor(long generation) {
+        return directory.resolve("exams." + generation + ".journal");
+    }
+
+    private synchronized void openLatest() throws IOException {
+        Files.createDirectories(directory);
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "exams.*")) {
+            for (Path file : files) {
+                Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) generations.add(Long.parseLong(matcher.group(1)));
+                else if (file.getFileName().toString().endsWith(".tmp")) Files.deleteIfExists(file); // unfinished compaction
+            }
+        }
+        Collections.sort(generations);
+        generation = generations.isEmpty() ? 1 : generations.get(generations.size() - 1);
+        for (long old : generations) if (old != generation) deleteQuietly(fileFor(old));
+        map(fileFor(generation));
+        scan();
+    }
+
+    private void map(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), INITIAL_SIZE));
+    }
+
+    /**
+     * Reads every valid record, leaving the buffer positioned after the last one
+     */
+    private void scan() {
+        live.clear();
+        records = 0;
+        buffer.position(0);
+        int magic = buffer.getInt();
+        if (magic != MAGIC) {
+            if (magic != 0) System.out.println("Exam journal has no header, starting over!");
+            buffer.putInt(0, MAGIC);
+            return;
+        }
+        while (buffer.remaining() >= PREFIX + BODY_HEADER) {
+            int start = buffer.position();
+            int length = buffer.getInt(start);
+            int expected = buffer.getInt(start + 4);
+            if (length < BODY_HEADER || length > buffer.limit() - start - PREFIX) break;
+            if (checksum(buffer, start + PREFIX, length) != expected) break; // torn write
+            byte type = buffer.get(start + PREFIX);
+            long version = buffer.getLong(start + PREFIX + 1);
+            int keyLength = buffer.getShort(start + PREFIX + 9) & 0xFFFF;
+            if (keyLength > length - BODY_HEADER) break;
+            byte[] key = new byte[keyLength];
+            byte[] value = new byte[length - BODY_HEADER - keyLength];
+            buffer.position(start + PREFIX + BODY_HEADER);
+            buffer.get(key).get(value);
+            apply(type, version, new String(key, StandardCharsets.UTF_8), value);
+        }
+    }
+
+    private void apply(byte type, long version, String key, byte[] value) {
+        records++;
+        stateVersion = Math.max(stateVersion, version);
+        if (type == PUT) live.put(key, value); // an edit keeps its place
+        else if (type == DELETE) live.remove(key);
+    }
+
+    private int checksum(ByteBuffer source, int offset, int length) {
+        ByteBuffer slice = source.duplicate();
+        slice.limit(offset + length).position(offset);
+        crc.reset();
+        crc.update(slice);
+        return (int) crc.getValue();
+    }
+
+    private void encode(ByteBuffer target, byte type, long version, byte[] key, byte[] value) {
+        int start = target.position();
+        int length = BODY_HEADER + key.length + value.length;
+        target.putInt(length).putInt(0)
+                .put(type).putLong(version).putShort((short) key.length).put(key).put(value);
+        target.putInt(start + 4, checksum(target, start + PREFIX, length));
+    }
+
+    private static int sizeOf(byte[] key, byte[] value) {
+        return PREFIX + BODY_HEADER + key.length + value.length;
+    }
+
+    /**
+     * Appends a record to the mapped file, growing it when full
+     */
+    private void append(byte type, long version, String id, byte[] value) throws IOException {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        int size = sizeOf(key, value);
+        if (buffer.remaining() < size) {
+            int position = buffer.position();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(buffer.capacity() * 2L, position + size));
+            buffer.position(position);
+        }
+        encode(buffer, type, version, key, value);
+        apply(type, version, id, value);
+    }
+
+    /**
+     * Is empty
+     *
+     * @return if there are no exams in the journal
+     */
+    public synchronized boolean isEmpty() {
+        return live.isEmpty();
+    }
+
+    public synchronized long getStateVersion() {
+        return stateVersion;
+    }
+
+    /**
+     * Decodes the exams in the journal, in list order
+     *
+     * @return the exams
+     */
+    public synchronized List<Exam> getExams() {
+        List<Exam> exams = new ArrayList<>(live.size());
+        for (byte[] value : live.values()) {
+            try {
+                exams.add(gson.fromJson(new String(value, StandardCharsets.UTF_8), Exam.class));
+            } catch (RuntimeException e) {
+                System.out.println("Version incompatibility, skipped exam!");
+            }
+        }
+        return exams;
+    }
+
+    /**
+     * Replaces the exams in a repository with the journal's, without journaling that
+     *
+     * @param repository the repository
+     */
+    public void replayInto(ExamRepository repository) {
+        drain();
+        List<Exam> exams = getExams();
+        suspended = true;
+        try {
+            repository.clear();
+            repository.setStateVersion(getStateVersion());
+            repository.load(exams);
+        } finally {
+            suspended = false;
+        }
+    }
+
+    /**
+     * Journals every change made to a repository from now on
+     *
+     * @param repository the repository
+     */
+    public void attach(ExamRepository repository) {
+        repository.getExams().addListener((ListChangeListener<Exam>) c -> {
+            if (suspended) return;
+            List<Record> changes = new ArrayList<>();
+            int moved = Integer.MAX_VALUE;
+            while (c.next()) {
+                if (c.wasPermutated()) {
+                    moved = Math.min(moved, c.getFrom());
+                    continue;
+                }
+                for (Exam exam : c.getRemoved()) changes.add(new Record(DELETE, repository.getStateVersion(), exam.id, new byte[0]));
+                if (c.wasAdded() && c.getTo() < c.getList().size()) moved = Math.min(moved, c.getFrom()); // not at the end
+                else for (Exam exam : c.getAddedSubList()) changes.add(Record.put(exam));
+            }
+            // puts only append, so everything from the first exam out of place is written again behind the rest
+            List<Exam> exams = c.getList();
+            for (int i = moved; i < exams.size(); i++) {
+                changes.add(new Record(DELETE, repository.getStateVersion(), exams.get(i).id, new byte[0]));
+                changes.add(Record.put(exams.get(i)));
+            }
+            if (!changes.isEmpty()) submit(changes);
+        });
+        repository.addUpdateListener(exam -> {
+            if (!suspended) submit(Collections.singletonList(Record.put(exam)));
+        });
+    }
+
+    /**
+     * Waits for the writes queued so far
+     */
+    private void drain() {
+        try {
+            executor.submit(() -> {
+            }).get();
+        } catch (InterruptedException | ExecutionException e) {
+            System.out.println("Unable to finish exam journal writes! " + e.getMessage());
+        }
+    }
+
+    private void submit(List<Record> changes) {
+        executor.execute(() -> {
+            synchronized (this) {
+                try {
+                    for (Record record : changes) append(record.type, record.version, record.id, record.value);
+                    // only the last write of a burst pays for the sync
+                    if (executor.getQueue().isEmpty()) buffer.force();
+                    if (records > live.size() * 2 + 256) compactNow(stateVersion);
+                } catch (IOException e) {
+                    System.out.println("Unable to write exam journal! " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Rewrites the journal with only the live exams, in the background
+     *
+     * @param stateVersion the current state version of the repository
+     */
+    public void compact(long stateVersion) {
+        executor.execute(() -> {
+            synchronized (this) {
+                try {
+                    compactNow(stateVersion);
+                } catch (IOException e) {
+                    System.out.println("Unable to compact exam journal! " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    private void compactNow(long stateVersion) throws IOException {
+        stateVersion = Math.max(stateVersion, this.stateVersion);
+        int size = 4 + sizeOf(new byte[0], new byte[0]);
+        List<byte[]> keys = new ArrayList<>(live.size());
+        for (Map.Entry<String, byte[]> entry : live.entrySet()) {
+            byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            keys.add(key);
+            size += sizeOf(key, entry.getValue());
+        }
+        ByteBuffer compacted = ByteBuffer.allocate(size);
+        compacted.putInt(MAGIC);
+        Iterator<byte[]> keyIterator = keys.iterator();
+        for (byte[] value : live.values()) encode(compacted, PUT, stateVersion, keyIterator.next(), value);
+        encode(compacted, STATE, stateVersion, new byte[0], new byte[0]);
+        compacted.flip();
+
+        long next = generation + 1;
+        Path temp = directory.resolve("exams." + next + ".journal.tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (compacted.hasRemaining()) out.write(compacted);
+            out.force(true);
+        }
+        Files.move(temp, fileFor(next), StandardCopyOption.ATOMIC_MOVE);
+
+        Path old = fileFor(generation);
+        buffer.force();
+        channel.close(); // the old mapping stays valid until collected, windows will not delete it before that
+        generation = next;
+        map(fileFor(next));
+        buffer.position(size);
+        records = live.size() + 1;
+        this.stateVersion = stateVersion;
+        deleteQuietly(old); // otherwise cleaned up on the next open
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Finishes pending writes and closes the file
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored) {
+        }
+        synchronized (this) {
+            try {
+                buffer.force();
+                channel.close();
+            } catch (IOException e) {
+                System.out.println("Unable to close exam journal! " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A change waiting to be written, serialized on the FX thread since exams are mutable
+     */
+    private static final class Record {
+        private final byte type;
+        private final long version;
+        private final String id;
+        private final byte[] value;
+
+        private Record(byte type, long version, String id, byte[] value) {
+            this.type = type;
+            this.version = version;
+            this.id = id;
+            this.value = value;
+        }
+
+        private static Record put(Exam exam) {
+            return new Record(PUT, exam.version, exam.id, gson.toJson(exam).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
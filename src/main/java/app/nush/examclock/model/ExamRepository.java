@@ -0,0 +1,208 @@
+package app.nush.examclock.model;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Exam store, wraps the observable exam list with an index by id
+ * <p>
+ * The index follows the list through a listener, so changes made directly to the list
+ * are still picked up. Batch operations produce a single change event
+ * <p>
+ * Every change bumps the state version, and a changed exam takes the new state version as its own.
+ * This lets the server ask only for exams whose version it has not seen
+ */
+public class ExamRepository {
+    private final ObservableList<Exam> exams;
+    private final Map<String, Exam> byId = new HashMap<>();
+    private final List<Consumer<Exam>> updateListeners = new ArrayList<>();
+    private long stateVersion;
+    /**
+     * Set while loading saved exams, which keep their versions
+     */
+    private boolean loading;
+
+    /**
+     * Instantiates a new exam repository, should be created before any other listener is added to the list
+     *
+     * @param exams the exams
+     */
+    public ExamRepository(ObservableList<Exam> exams) {
+        this.exams = exams;
+        for (Exam exam : exams) byId.put(exam.id, exam);
+        exams.addListener((ListChangeListener<Exam>) c -> {
+            while (c.next()) {
+                if (c.wasPermutated()) continue;
+                for (Exam exam : c.getRemoved()) byId.remove(exam.id, exam);
+                if (c.wasRemoved() && !loading) stateVersion++;
+                for (Exam exam : c.getAddedSubList()) {
+                    byId.put(exam.id, exam);
+                    if (loading) stateVersion = Math.max(stateVersion, exam.version);
+                    else exam.version = ++stateVersion;
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets the underlying list
+     *
+     * @return the exams
+     */
+    public ObservableList<Exam> getExams() {
+        return exams;
+    }
+
+    /**
+     * Gets exam by id
+     *
+     * @param id the id
+     * @return the exam, null if not found
+     */
+    public Exam get(String id) {
+        return byId.get(id);
+    }
+
+    /**
+     * Contains boolean.
+     *
+     * @param id the id
+     * @return if an exam with the id exists
+     */
+    public boolean contains(String id) {
+        return byId.containsKey(id);
+    }
+
+    /**
+     * Ids of all exams
+     *
+     * @return the ids, read only
+     */
+    public Set<String> getIds() {
+        return Collections.unmodifiableSet(byId.keySet());
+    }
+
+    /**
+     * Adds exams in one change
+     *
+     * @param added the exams
+     */
+    public void addAll(Collection<? extends Exam> added) {
+        if (!added.isEmpty()) exams.addAll(added);
+    }
+
+    /**
+     * Adds saved exams in one change, keeping their versions
+     *
+     * @param saved the exams
+     */
+    public void load(Collection<? extends Exam> saved) {
+        loading = true;
+        try {
+            addAll(saved);
+        } finally {
+            loading = false;
+        }
+    }
+
+    /**
+     * Marks an exam as changed in place, call after editing its fields
+     *
+     * @param exam the exam
+     */
+    public void touch(Exam exam) {
+        exam.version = ++stateVersion;
+        for (Consumer<Exam> listener : updateListeners) listener.accept(exam);
+    }
+
+    /**
+     * Adds a listener for exams changed in place
+     *
+     * @param listener the listener
+     */
+    public void addUpdateListener(Consumer<Exam> listener) {
+        updateListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with {@link #addUpdateListener}
+     *
+     * @param listener the listener
+     */
+    public void removeUpdateListener(Consumer<Exam> listener) {
+        updateListeners.remove(listener);
+    }
+
+    /**
+     * Version of every exam by id
+     *
+     * @return the version vector
+     */
+    public Map<String, Long> getVersions() {
+        Map<String, Long> versions = new LinkedHashMap<>();
+        for (Exam exam : exams) versions.put(exam.id, exam.version);
+        return versions;
+    }
+
+    public long getStateVersion() {
+        return stateVersion;
+    }
+
+    /**
+     * Restores the saved state version, never goes backwards
+     *
+     * @param stateVersion the state version
+     */
+    public void setStateVersion(long stateVersion) {
+        this.stateVersion = Math.max(this.stateVersion, stateVersion);
+    }
+
+    /**
+     * Replaces every exam in one change
+     *
+     * @param replacement the new exams
+     */
+    public void setAll(Collection<? extends Exam> replacement) {
+        exams.setAll(replacement);
+    }
+
+    /**
+     * Removes an exam by id
+     *
+     * @param id the id
+     * @return if it was found
+     */
+    public boolean remove(String id) {
+        return removeAll(Collections.singleton(id)) > 0;
+    }
+
+    /**
+     * Removes exams by id in one change
+     *
+     * @param ids the ids
+     * @return number of exams found
+     */
+    public int removeAll(Collection<String> ids) {
+        Set<Exam> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (String id : ids) {
+            Exam exam = byId.get(id);
+            if (exam != null) removed.add(exam);
+        }
+        if (!removed.isEmpty()) exams.removeAll(removed);
+        return removed.size();
+    }
+
+    /**
+     * Removes every exam
+     */
+    public void clear() {
+        exams.clear();
+    }
+
+    public int size() {
+        return exams.size();
+    }
+}
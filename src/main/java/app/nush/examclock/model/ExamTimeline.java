@@ -0,0 +1,141 @@
+package app.nush.examclock.model;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+
+/**
+ * Immutable, parsed view of when an exam happens
+ * <p>
+ * The strings in {@link Exam} are parsed exactly once into this object, after that
+ * every check is just a comparison of epoch millis, cheap enough for the render loop
+ */
+public final class ExamTimeline {
+    private final String dateSource;
+    private final String startSource;
+    private final String endSource;
+    private final LocalDate date;
+    private final LocalTime start;
+    private final LocalTime end;
+    /**
+     * Epoch millis of the start of the exam, in the system time zone
+     */
+    private final long startMillis;
+    /**
+     * Epoch millis of the end of the exam, in the system time zone
+     */
+    private final long endMillis;
+    /**
+     * Epoch millis of the midnight starting the exam day
+     */
+    private final long dayStartMillis;
+    /**
+     * Epoch millis of the midnight ending the exam day
+     */
+    private final long dayEndMillis;
+
+    private ExamTimeline(String dateSource, String startSource, String endSource, ZoneId zone) {
+        this.dateSource = dateSource;
+        this.startSource = startSource;
+        this.endSource = endSource;
+        date = LocalDate.parse(dateSource);
+        start = LocalTime.parse(startSource);
+        end = LocalTime.parse(endSource);
+        startMillis = date.atTime(start).atZone(zone).toInstant().toEpochMilli();
+        endMillis = date.atTime(end).atZone(zone).toInstant().toEpochMilli();
+        dayStartMillis = date.atStartOfDay(zone).toInstant().toEpochMilli();
+        dayEndMillis = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Parses the string fields of an exam
+     *
+     * @param date  the date, ISO format
+     * @param start the start time, ISO format
+     * @param end   the end time, ISO format
+     * @return the timeline
+     */
+    public static ExamTimeline parse(String date, String start, String end) {
+        return new ExamTimeline(date, start, end, ZoneId.systemDefault());
+    }
+
+    /**
+     * Whether this timeline was parsed from exactly these strings
+     * <p>
+     * Identity comparison on purpose, any assignment to the exam fields makes the cache stale
+     *
+     * @param date  the date
+     * @param start the start
+     * @param end   the end
+     * @return if still valid
+     */
+    boolean isParsedFrom(String date, String start, String end) {
+        return dateSource == date && startSource == start && endSource == end;
+    }
+
+    /**
+     * Is the exam running at the given instant
+     *
+     * @param epochMillis the instant
+     * @return running
+     */
+    public boolean isRunning(long epochMillis) {
+        return epochMillis > startMillis && epochMillis < endMillis;
+    }
+
+    /**
+     * Has the exam ended at the given instant
+     *
+     * @param epochMillis the instant
+     * @return ended
+     */
+    public boolean hasEnded(long epochMillis) {
+        return epochMillis > endMillis;
+    }
+
+    /**
+     * Is the given instant on the day of the exam
+     *
+     * @param epochMillis the instant
+     * @return same day
+     */
+    public boolean isOnExamDay(long epochMillis) {
+        return epochMillis >= dayStartMillis && epochMillis < dayEndMillis;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public long getEndMillis() {
+        return endMillis;
+    }
+
+    public long getDayStartMillis() {
+        return dayStartMillis;
+    }
+
+    public long getDayEndMillis() {
+        return dayEndMillis;
+    }
+
+    public long getDurationMillis() {
+        return endMillis - startMillis;
+    }
+
+    public long getDurationSeconds() {
+        return getDurationMillis() / 1000;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public LocalTime getStart() {
+        return start;
+    }
+
+    public LocalTime getEnd() {
+        return end;
+    }
+}
@@ -0,0 +1,199 @@
+package app.nush.examclock.model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.*;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * iCalendar files, every VEVENT is one sitting
+ * <p>
+ * SUMMARY is the name, LOCATION the venue and UID the id. DTSTART and DTEND (or DURATION) give the times,
+ * DTEND wins if both are given. Properties of blocks inside an event, like alarms, are ignored. UTC and TZID times are converted to this clock's time zone. All day events have no times and are skipped
+ */
+public class IcsTimetableParser implements TimetableParser {
+    /**
+     * getAvailableZoneIds makes a new copy every call
+     */
+    private static final Set<String> zoneIds = ZoneId.getAvailableZoneIds();
+
+    @Override
+    public void parse(Reader in, Consumer<TimetableRow> rows) throws IOException {
+        BufferedReader reader = new BufferedReader(in, 1 << 16);
+        Event event = null;
+        int events = 0;
+        // blocks inside the event, like VALARM, have their own DURATION and SUMMARY
+        int nested = 0;
+        boolean calendar = false;
+        String line = reader.readLine();
+        while (line != null) {
+            // long lines are folded, continuation lines start with a space or tab
+            StringBuilder unfolded = new StringBuilder(line);
+            while ((line = reader.readLine()) != null && !line.isEmpty() && (line.charAt(0) == ' ' || line.charAt(0) == '\t'))
+                unfolded.append(line, 1, line.length());
+            String property = unfolded.toString();
+            if (property.equalsIgnoreCase("BEGIN:VCALENDAR")) calendar = true;
+            else if (property.equalsIgnoreCase("BEGIN:VEVENT")) {
+                event = new Event(++events);
+                nested = 0;
+            } else if (event == null) continue;
+            else if (property.regionMatches(true, 0, "BEGIN:", 0, 6)) nested++;
+            else if (nested > 0) {
+                if (property.regionMatches(true, 0, "END:", 0, 4)) nested--;
+            } else if (property.equalsIgnoreCase("END:VEVENT")) {
+                rows.accept(event.toRow());
+                event = null;
+            } else event.set(property);
+        }
+        if (!calendar) throw new IOException("Not an iCalendar file");
+    }
+
+    /**
+     * Index of the colon between name;params and value, skipping quoted params
+     */
+    private static int valueStart(String property) {
+        boolean quoted = false;
+        for (int i = 0; i < property.length(); i++) {
+            char c = property.charAt(i);
+            if (c == '"') quoted = !quoted;
+            else if (c == ':' && !quoted) return i;
+        }
+        return -1;
+    }
+
+    private static String unescape(String text) {
+        if (text.indexOf('\\') < 0) return text;
+        StringBuilder builder = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < text.length()) {
+                char next = text.charAt(++i);
+                builder.append(next == 'n' || next == 'N' ? ' ' : next);
+            } else builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Parses 20201102T080000, 20201102T080000Z or 20201102, into the system time zone
+     *
+     * @return the date time, null if invalid or only a date
+     */
+    static LocalDateTime parseDateTime(String value, String params) {
+        if (value.length() < 15 || value.charAt(8) != 'T') return null;
+        int year = digits(value, 0, 4);
+        int month = digits(value, 4, 6);
+        int day = digits(value, 6, 8);
+        int hour = digits(value, 9, 11);
+        int minute = digits(value, 11, 13);
+        int second = digits(value, 13, 15);
+        if (year < 1 || month < 1 || month > 12 || day < 1 || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 60)
+            return null;
+        if (day > YearMonth.of(year, month).lengthOfMonth()) return null;
+        LocalDateTime local = LocalDateTime.of(year, month, day, hour, minute);
+        ZoneId zone = null;
+        if (value.length() > 15 && value.charAt(15) == 'Z') zone = ZoneOffset.UTC;
+        else {
+            String tzid = param(params, "TZID");
+            if (tzid != null && zoneIds.contains(tzid)) zone = ZoneId.of(tzid);
+        }
+        return zone == null ? local : local.atZone(zone).withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+    }
+
+    private static int digits(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + c - '0';
+        }
+        return value;
+    }
+
+    private static String param(String params, String name) {
+        for (String param : params.split(";")) {
+            int equals = param.indexOf('=');
+            if (equals > 0 && param.substring(0, equals).equalsIgnoreCase(name)) {
+                String value = param.substring(equals + 1);
+                return value.startsWith("\"") && value.endsWith("\"") && value.length() > 1 ? value.substring(1, value.length() - 1) : value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parses a simple duration such as PT2H30M
+     *
+     * @return the minutes, -1 if invalid
+     */
+    static int parseDuration(String value) {
+        if (!value.startsWith("PT")) return -1;
+        int minutes = 0;
+        int number = -1;
+        for (int i = 2; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') number = Math.max(number, 0) * 10 + c - '0';
+            else if (number < 0) return -1;
+            else if (c == 'H') minutes += number * 60;
+            else if (c == 'M') minutes += number;
+            else if (c != 'S') return -1;
+            if (c > '9') number = -1;
+        }
+        return number < 0 && minutes > 0 ? minutes : -1;
+    }
+
+    /**
+     * Properties of the VEVENT being read
+     */
+    private static final class Event {
+        private final int row;
+        private String uid;
+        private String summary;
+        private String location;
+        private String start;
+        private String startParams = "";
+        private String end;
+        private String endParams = "";
+        private String duration;
+
+        private Event(int row) {
+            this.row = row;
+        }
+
+        private void set(String property) {
+            int colon = valueStart(property);
+            if (colon < 0) return;
+            int semicolon = property.indexOf(';');
+            boolean hasParams = semicolon >= 0 && semicolon < colon;
+            String name = property.substring(0, hasParams ? semicolon : colon).toUpperCase(Locale.ROOT);
+            String params = hasParams ? property.substring(semicolon + 1, colon) : "";
+            String value = property.substring(colon + 1);
+            switch (name) {
+                case "UID": uid = value; break;
+                case "SUMMARY": summary = unescape(value).trim(); break;
+                case "LOCATION": location = unescape(value).trim(); break;
+                case "DTSTART": start = value; startParams = params; break;
+                case "DTEND": end = value; endParams = params; break;
+                case "DURATION": duration = value; break;
+            }
+        }
+
+        private TimetableRow toRow() {
+            if (summary == null || summary.isEmpty()) return TimetableRow.invalid(row, "no summary");
+            if (start == null) return TimetableRow.invalid(row, "no start");
+            LocalDateTime from = parseDateTime(start, startParams);
+            if (from == null) return TimetableRow.invalid(row, start.length() == 8 ? "all day event" : "invalid start " + start);
+            LocalDateTime to;
+            if (end != null) to = parseDateTime(end, endParams);
+            else if (duration != null && parseDuration(duration) > 0) to = from.plusMinutes(parseDuration(duration));
+            else to = null;
+            if (to == null) return TimetableRow.invalid(row, "invalid end");
+            if (!to.toLocalDate().equals(from.toLocalDate())) return TimetableRow.invalid(row, "ends on another day");
+            return new TimetableRow(row, uid, summary, location == null || location.isEmpty() ? null : location,
+                    from.toLocalDate(), from.toLocalTime(), to.toLocalTime(), null);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package app.nush.examclock.model;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * One reading of exam time, taken once per frame and handed to everything that draws
+ * <p>
+ * Everything is decomposed up front, so the hands, the digital clock and the exam countdowns
+ * all show the same instant and none of them touch time zones
+ */
+public final class Tick {
+    /**
+     * Exam time in epoch millis
+     */
+    public final long epochMillis;
+    /**
+     * Local day, days since 1970-01-01
+     */
+    public final long epochDay;
+    public final int hour;
+    public final int minute;
+    public final int second;
+    public final int millis;
+
+    Tick(long epochMillis, long offsetMillis) {
+        this.epochMillis = epochMillis;
+        long local = epochMillis + offsetMillis;
+        epochDay = Math.floorDiv(local, 86_400_000L);
+        int millisOfDay = (int) Math.floorMod(local, 86_400_000L);
+        hour = millisOfDay / 3_600_000;
+        minute = millisOfDay / 60_000 % 60;
+        second = millisOfDay / 1000 % 60;
+        millis = millisOfDay % 1000;
+    }
+
+    /**
+     * Local date, allocates, not for the render loop
+     *
+     * @return the date
+     */
+    public LocalDate getDate() {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * Local time to the second, allocates, not for the render loop
+     *
+     * @return the time
+     */
+    public LocalTime getTime() {
+        return LocalTime.of(hour, minute, second);
+    }
+}
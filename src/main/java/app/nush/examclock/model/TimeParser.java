@@ -0,0 +1,77 @@
+package app.nush.examclock.model;
+
+import java.time.LocalTime;
+
+/**
+ * Parser for times typed by people, used by the add exam dialog and for times sent by the web panel
+ * <p>
+ * Accepts everything the old formatter list did: hh:mma, HH:mm, h:mma, H:mm, hha and ha.
+ * Spaces are ignored and am/pm is case insensitive, so "9:30 PM", "21:30" and "9pm" all work.
+ * Never throws, it runs on every keystroke, a bad time is just null
+ */
+public final class TimeParser {
+    private TimeParser() {
+    }
+
+    /**
+     * Parses a time
+     *
+     * @param text the text
+     * @return the time, null if it is not a valid time
+     */
+    public static LocalTime parse(CharSequence text) {
+        if (text == null) return null;
+        int length = text.length();
+        int position = skipSpaces(text, 0);
+
+        int hour = 0;
+        int hourDigits = 0;
+        while (position < length && hourDigits < 2 && isDigit(text.charAt(position))) {
+            hour = hour * 10 + text.charAt(position) - '0';
+            hourDigits++;
+            position = skipSpaces(text, position + 1);
+        }
+        if (hourDigits == 0) return null;
+
+        int minute = 0;
+        boolean hasMinutes = false;
+        if (position < length && text.charAt(position) == ':') {
+            position = skipSpaces(text, position + 1);
+            for (int i = 0; i < 2; i++) {
+                if (position >= length || !isDigit(text.charAt(position))) return null;
+                minute = minute * 10 + text.charAt(position) - '0';
+                position = skipSpaces(text, position + 1);
+            }
+            hasMinutes = true;
+        }
+
+        int halfDay = -1; // hours to add, 0 for am, 12 for pm
+        if (position < length) {
+            char c = Character.toLowerCase(text.charAt(position));
+            if (c == 'a') halfDay = 0;
+            else if (c == 'p') halfDay = 12;
+            else return null;
+            position = skipSpaces(text, position + 1);
+            if (position >= length || Character.toLowerCase(text.charAt(position)) != 'm') return null;
+            position = skipSpaces(text, position + 1);
+        }
+        if (position != length || minute > 59) return null;
+
+        if (halfDay < 0) {
+            // 24 hour times need the minutes, "10" on its own is still being typed
+            if (!hasMinutes || hour > 23) return null;
+            return LocalTime.of(hour, minute);
+        }
+        if (hour < 1 || hour > 12) return null;
+        return LocalTime.of(hour % 12 + halfDay, minute);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int skipSpaces(CharSequence text, int position) {
+        while (position < text.length() && text.charAt(position) == ' ') position++;
+        return position;
+    }
+}
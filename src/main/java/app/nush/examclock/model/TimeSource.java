@@ -0,0 +1,128 @@
+package app.nush.examclock.model;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * Exam time, the one clock every display reads
+ * <p>
+ * Runs off {@link System#nanoTime()}, anchored to the wall clock once, so two reads in the same frame
+ * cannot disagree and small adjustments of the system clock do not make it jump. A correction is added on top, it follows the wall clock
+ * until the server gives a reference ({@link #setReference}), then the server.
+ * The correction is slewed, at most {@link #SLEW_RATE} ms per ms, so the second hand speeds up or slows
+ * down a little instead of jumping. Errors over {@link #STEP_THRESHOLD_MILLIS} are stepped at once,
+ * slewing those away would take too long to be useful
+ */
+public final class TimeSource {
+    /**
+     * 5%, a 3 second error is gone within a minute
+     */
+    public static final double SLEW_RATE = 0.05;
+    public static final long STEP_THRESHOLD_MILLIS = 10_000;
+
+    private static final long anchorNanos = System.nanoTime();
+    private static final long anchorMillis = System.currentTimeMillis();
+    private static final ZoneRules zoneRules = ZoneId.systemDefault().getRules();
+    /**
+     * Current zone offset, valid until the next transition
+     */
+    private static long offsetMillis;
+    private static long offsetValidUntil = Long.MIN_VALUE;
+    /**
+     * Applied correction, and where it is heading
+     */
+    private static double correction;
+    private static double target;
+    private static boolean referenced;
+    private static long lastMonotonic = monotonicMillis();
+
+    private TimeSource() {
+    }
+
+    /**
+     * Millis since the anchor, on the monotonic clock, as epoch millis
+     */
+    private static long monotonicMillis() {
+        return anchorMillis + (System.nanoTime() - anchorNanos) / 1_000_000;
+    }
+
+    /**
+     * Current exam time
+     *
+     * @return epoch millis
+     */
+    public static synchronized long now() {
+        long monotonic = monotonicMillis();
+        if (!referenced) target = System.currentTimeMillis() - monotonic;
+        double error = target - correction;
+        if (Math.abs(error) > STEP_THRESHOLD_MILLIS) correction = target;
+        else {
+            double step = Math.max(0, monotonic - lastMonotonic) * SLEW_RATE;
+            correction += Math.max(-step, Math.min(step, error));
+        }
+        lastMonotonic = monotonic;
+        return monotonic + Math.round(correction);
+    }
+
+    /**
+     * Current exam time, decomposed in the system time zone
+     *
+     * @return the tick
+     */
+    public static synchronized Tick tick() {
+        long now = now();
+        if (now >= offsetValidUntil) {
+            Instant instant = Instant.ofEpochMilli(now);
+            offsetMillis = zoneRules.getOffset(instant).getTotalSeconds() * 1000L;
+            ZoneOffsetTransition transition = zoneRules.nextTransition(instant);
+            offsetValidUntil = transition == null ? Long.MAX_VALUE : transition.toEpochSecond() * 1000;
+        }
+        return new Tick(now, offsetMillis);
+    }
+
+    /**
+     * Monotonic time without any correction, for measuring round trips against the server
+     *
+     * @return the time in epoch millis
+     */
+    public static long monotonic() {
+        return monotonicMillis();
+    }
+
+    /**
+     * Sets the reference offset, exam time is slewed towards {@link #monotonic()} + offset
+     *
+     * @param offset the offset from the monotonic clock in millis
+     */
+    public static synchronized void setReference(double offset) {
+        target = offset;
+        referenced = true;
+    }
+
+    /**
+     * Goes back to following the wall clock
+     */
+    public static synchronized void clearReference() {
+        referenced = false;
+    }
+
+    /**
+     * How far exam time currently is from the local wall clock
+     *
+     * @return the difference in millis, positive if exam time is ahead
+     */
+    public static long getWallOffset() {
+        return now() - System.currentTimeMillis();
+    }
+
+    /**
+     * Error still being slewed away
+     *
+     * @return the remaining correction in millis
+     */
+    public static synchronized long getPendingCorrection() {
+        return Math.round(target - correction);
+    }
+}
@@ -0,0 +1,129 @@
+package app.nush.examclock.model;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Turns a CSV or iCalendar timetable into exams
+ * <p>
+ * Rows are filtered to one venue and/or date, then deduplicated by id against the exams already on this clock
+ * and against each other. Rows without an id get one derived from their name, date, times and venue,
+ * so importing the same timetable twice adds nothing. The caller adds the result in one go
+ */
+public final class TimetableImport {
+    /**
+     * Only the first few problems are kept for the summary
+     */
+    private static final int MAX_PROBLEMS = 20;
+
+    /**
+     * Only import this venue, null for every venue
+     */
+    public String venue;
+    /**
+     * Only import this date, null for every date
+     */
+    public LocalDate date;
+
+    /**
+     * Reads a timetable file
+     *
+     * @param file        the file
+     * @param parser      the parser for its format
+     * @param existingIds ids of the exams already on this clock
+     * @return the exams to add and what was left out
+     * @throws IOException if the file cannot be read
+     */
+    public Result run(Path file, TimetableParser parser, Set<String> existingIds) throws IOException {
+        // excel exports are not always utf-8, bad bytes become replacement characters instead of failing
+        try (Reader reader = new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8)) {
+            return run(reader, parser, existingIds);
+        }
+    }
+
+    /**
+     * Reads a timetable
+     *
+     * @param reader      the reader
+     * @param parser      the parser for its format
+     * @param existingIds ids of the exams already on this clock
+     * @return the exams to add and what was left out
+     * @throws IOException if the timetable cannot be read
+     */
+    public Result run(Reader reader, TimetableParser parser, Set<String> existingIds) throws IOException {
+        Result result = new Result();
+        Set<String> seen = new HashSet<>(existingIds);
+        parser.parse(reader, row -> accept(row, seen, result));
+        return result;
+    }
+
+    private void accept(TimetableRow row, Set<String> seen, Result result) {
+        if (row.problem != null) {
+            result.skipped++;
+            if (result.problems.size() < MAX_PROBLEMS) result.problems.add("Row " + row.row + ": " + row.problem);
+            return;
+        }
+        if ((venue != null && (row.venue == null || !row.venue.equalsIgnoreCase(venue))) || (date != null && !date.equals(row.date))) {
+            result.filtered++;
+            return;
+        }
+        if (!row.end.isAfter(row.start)) {
+            result.skipped++;
+            if (result.problems.size() < MAX_PROBLEMS) result.problems.add("Row " + row.row + ": ends before it starts");
+            return;
+        }
+        String id = row.id != null ? row.id : idOf(row);
+        if (!seen.add(id)) {
+            result.duplicates++;
+            return;
+        }
+        result.exams.add(new Exam(id, row.name, row.date, row.start, row.end));
+    }
+
+    /**
+     * Stable id from what identifies a sitting, 48 bits of FNV-1a as 8 base64 characters
+     */
+    static String idOf(TimetableRow row) {
+        long hash = 0xcbf29ce484222325L;
+        String key = row.name + '\0' + row.date + '\0' + row.start + '\0' + row.end + '\0' + (row.venue == null ? "" : row.venue);
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        byte[] bytes = new byte[6];
+        for (int i = 0; i < bytes.length; i++) bytes[i] = (byte) (hash >>> (8 * i));
+        return Base64.getUrlEncoder().encodeToString(bytes);
+    }
+
+    /**
+     * Outcome of a timetable import
+     */
+    public static final class Result {
+        /**
+         * Exams to add
+         */
+        public final List<Exam> exams = new ArrayList<>();
+        /**
+         * Rows already on this clock, or repeated in the file
+         */
+        public int duplicates;
+        /**
+         * Rows for another venue or date
+         */
+        public int filtered;
+        /**
+         * Rows that could not be read
+         */
+        public int skipped;
+        /**
+         * The first few unreadable rows and why
+         */
+        public final List<String> problems = new ArrayList<>();
+    }
+}
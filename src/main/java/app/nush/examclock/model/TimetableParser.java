@@ -0,0 +1,33 @@
+package app.nush.examclock.model;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Reads a timetable file one row at a time
+ */
+public interface TimetableParser {
+    /**
+     * Picks a parser by file extension
+     *
+     * @param fileName the file name
+     * @return the parser, null if the format is not supported
+     */
+    static TimetableParser forFile(String fileName) {
+        String lower = fileName.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".csv") || lower.endsWith(".txt")) return new CsvTimetableParser();
+        if (lower.endsWith(".ics") || lower.endsWith(".ical")) return new IcsTimetableParser();
+        return null;
+    }
+
+    /**
+     * Streams the rows of a timetable, bad rows are passed on with a problem rather than thrown
+     *
+     * @param reader the reader
+     * @param rows   receives every row
+     * @throws IOException if the file cannot be read, or is not a timetable at all
+     */
+    void parse(Reader reader, Consumer<TimetableRow> rows) throws IOException;
+}
@@ -0,0 +1,42 @@
+package app.nush.examclock.model;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * One sitting read from a timetable, before it becomes an {@link Exam}
+ */
+public final class TimetableRow {
+    /**
+     * Row in the file, 1 is the first row after the header (or the first event)
+     */
+    public final int row;
+    /**
+     * Id given by the file, null if it has none
+     */
+    public final String id;
+    public final String name;
+    public final String venue;
+    public final LocalDate date;
+    public final LocalTime start;
+    public final LocalTime end;
+    /**
+     * What could not be read, null if the row is complete
+     */
+    public final String problem;
+
+    TimetableRow(int row, String id, String name, String venue, LocalDate date, LocalTime start, LocalTime end, String problem) {
+        this.row = row;
+        this.id = id;
+        this.name = name;
+        this.venue = venue;
+        this.date = date;
+        this.start = start;
+        this.end = end;
+        this.problem = problem;
+    }
+
+    static TimetableRow invalid(int row, String problem) {
+        return new TimetableRow(row, null, null, null, null, null, null, problem);
+    }
+}
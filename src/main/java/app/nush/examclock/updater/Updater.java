@@ -25,19 +25,25 @@ import java.util.Objects;
  */
 public class Updater {
     public static final Gson gson = new Gson();
-    public static final OkHttpClient client = new OkHttpClient();
+    /**
+     * Built on the update thread, OkHttp takes a while to load
+     */
+    private static OkHttpClient client;
 
     /**
      * Async update.
      */
     public static void asyncUpdate() {
-        new Thread(Updater::checkUpdates).start();
+        Thread thread = new Thread(Updater::checkUpdates, "Updater");
+        thread.setDaemon(true);
+        thread.start();
     }
 
     /**
      * Check updates.
      */
-    public static void checkUpdates() {
+    public static synchronized void checkUpdates() {
+        if (client == null) client = new OkHttpClient();
         Request request = new Request.Builder()
                 .url("https://api.github.com/repos/appventure-nush/exam-clock-2020/releases")
                 .build();
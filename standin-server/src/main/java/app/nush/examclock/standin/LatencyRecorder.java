@@ -0,0 +1,38 @@
+package app.nush.examclock.standin;
+
+import java.util.Arrays;
+
+/**
+ * Collects latency samples in nanoseconds and reports percentiles
+ */
+class LatencyRecorder {
+    private long[] samples = new long[1024];
+    private int count;
+
+    synchronized void record(long nanos) {
+        if (count == samples.length) samples = Arrays.copyOf(samples, count * 2);
+        samples[count++] = nanos;
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    /**
+     * Summary line in millis
+     *
+     * @param name what was measured
+     * @return the summary
+     */
+    synchronized String summary(String name) {
+        if (count == 0) return String.format("%-14s no samples", name);
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return String.format("%-14s n=%-7d p50=%7.2fms p90=%7.2fms p99=%7.2fms max=%7.2fms", name, count,
+                percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), sorted[count - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, int percentile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile / 100d * sorted.length) - 1)] / 1e6;
+    }
+}
@@ -0,0 +1,111 @@
+package app.nush.examclock.standin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives simulated clocks and controllers against a stand-in (or real) server
+ * <p>
+ * Every controller takes control of a share of the clocks, then fires toilet toggles and new exams at the given rate.
+ * Latency is measured from the command leaving the controller to the clock's reaction reaching it again.
+ * With --reconnect-storm every clock drops and reconnects at once halfway through the run
+ */
+public class LoadDriver {
+
+    public static void main(String... args) throws Exception {
+        String host = "127.0.0.1";
+        int port = 3000;
+        int clockCount = 50;
+        int controllerCount = 5;
+        double rate = 10;
+        int duration = 30;
+        boolean reconnectStorm = false;
+        boolean embedded = true;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host": host = args[++i]; break;
+                case "--port": port = Integer.parseInt(args[++i]); break;
+                case "--clocks": clockCount = Integer.parseInt(args[++i]); break;
+                case "--controllers": controllerCount = Integer.parseInt(args[++i]); break;
+                case "--rate": rate = Double.parseDouble(args[++i]); break;
+                case "--duration": duration = Integer.parseInt(args[++i]); break;
+                case "--reconnect-storm": reconnectStorm = true; break;
+                case "--external": embedded = false; break;
+                default: System.out.println("Unknown argument " + args[i]);
+            }
+        }
+
+        StandInServer server = null;
+        if (embedded) {
+            server = new StandInServer(host, port);
+            server.start();
+        }
+        String clockServer = "http://" + host + ":" + port;
+        String controllerServer = "http://" + host + ":" + (port + 1);
+
+        List<SimulatedClock> clocks = new ArrayList<>();
+        long connectStart = System.nanoTime();
+        for (int i = 0; i < clockCount; i++) {
+            SimulatedClock clock = new SimulatedClock(clockServer, "sim-" + i);
+            clock.connect();
+            clocks.add(clock);
+        }
+        int connected = 0;
+        for (SimulatedClock clock : clocks) if (clock.awaitConnected(10000)) connected++;
+        System.out.printf("%d/%d clocks connected in %d ms%n", connected, clockCount, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - connectStart));
+
+        LatencyRecorder toiletLatency = new LatencyRecorder();
+        LatencyRecorder examLatency = new LatencyRecorder();
+        AtomicLong sent = new AtomicLong();
+        List<SimulatedController> controllers = new ArrayList<>();
+        for (int i = 0; i < controllerCount; i++) {
+            List<String> share = new ArrayList<>();
+            for (int j = i; j < clockCount; j += controllerCount) share.add(clocks.get(j).getClockID());
+            SimulatedController controller = new SimulatedController(controllerServer, "ctl" + i, toiletLatency, examLatency, sent);
+            controller.connect(share);
+            controllers.add(controller);
+        }
+        Thread.sleep(1000);
+        int controlled = 0;
+        for (SimulatedController controller : controllers) controlled += controller.getControlledCount();
+        System.out.printf("%d clocks under control%n", controlled);
+
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(Math.max(1, Math.min(controllerCount, 4)));
+        long period = Math.max(1, (long) (1e6 / rate));
+        for (SimulatedController controller : controllers)
+            executor.scheduleAtFixedRate(controller::fire, 0, period, TimeUnit.MICROSECONDS);
+        if (reconnectStorm) {
+            executor.schedule(() -> {
+                System.out.println("Reconnect storm");
+                long stormStart = System.nanoTime();
+                clocks.forEach(SimulatedClock::disconnect);
+                clocks.forEach(SimulatedClock::connect);
+                int back = 0;
+                try {
+                    for (SimulatedClock clock : clocks) if (clock.awaitConnected(10000)) back++;
+                } catch (InterruptedException ignored) {
+                }
+                System.out.printf("%d/%d clocks back in %d ms%n", back, clocks.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - stormStart));
+            }, duration / 2, TimeUnit.SECONDS);
+        }
+
+        long start = System.nanoTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(duration));
+        executor.shutdownNow();
+        Thread.sleep(1000); // let replies in flight arrive
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Sent %d commands, %.1f/s, %d replies%n", sent.get(), sent.get() / seconds, toiletLatency.count() + examLatency.count());
+        System.out.println(toiletLatency.summary("toilet"));
+        System.out.println(examLatency.summary("new_exam"));
+
+        controllers.forEach(SimulatedController::disconnect);
+        clocks.forEach(SimulatedClock::disconnect);
+        if (server != null) server.stop();
+        System.exit(0);
+    }
+}
@@ -0,0 +1,137 @@
+package app.nush.examclock.standin;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.socket.client.IO;
+import io.socket.client.Socket;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URISyntaxException;
+import java.net.URLEncoder;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless clock, reacts to server events the way ClientSocket and MainController do
+ * <p>
+ * Requests are always accepted, exam changes are echoed back as exams_delta
+ */
+class SimulatedClock {
+    private final String clockID;
+    private final Socket socket;
+    private final Map<String, JsonObject> exams = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> toilets = new ConcurrentHashMap<>();
+    private final AtomicLong stateVersion = new AtomicLong();
+    private final AtomicLong examCounter = new AtomicLong();
+    private volatile CountDownLatch connected = new CountDownLatch(1);
+
+    SimulatedClock(String server, String clockID) throws URISyntaxException, UnsupportedEncodingException {
+        this.clockID = clockID;
+        JsonObject identity = new JsonObject();
+        identity.addProperty("clockID", clockID);
+        identity.addProperty("clockName", "Simulated " + clockID);
+        identity.addProperty("state", 0);
+        IO.Options opts = new IO.Options();
+        opts.path = "/socket.clocks";
+        opts.forceNew = true;
+        opts.transports = new String[]{"websocket"};
+        opts.query = "clock=" + URLEncoder.encode(identity.toString(), "UTF-8");
+        socket = IO.socket(server, opts);
+        socket.on(Socket.EVENT_CONNECT, args -> {
+            sendVersions();
+            connected.countDown();
+        });
+        socket.on(Socket.EVENT_DISCONNECT, args -> connected = new CountDownLatch(1));
+        socket.on("request", args -> socket.emit("request_callback", args[0], "accepted"));
+        socket.on("sync_request", args -> {
+            JsonArray ids = StandInServer.gson.fromJson(String.valueOf(args[0]), JsonObject.class).getAsJsonArray("ids");
+            JsonArray sent = new JsonArray();
+            ids.forEach(id -> {
+                JsonObject exam = exams.get(id.getAsString());
+                if (exam != null) sent.add(exam);
+            });
+            JsonObject payload = new JsonObject();
+            payload.addProperty("state", stateVersion.get());
+            payload.add("exams", sent);
+            socket.emit("exams_sync", payload.toString());
+        });
+        socket.on("new_exam", args -> {
+            JsonObject exam = new JsonObject();
+            exam.addProperty("id", clockID + "-" + examCounter.incrementAndGet());
+            exam.addProperty("name", String.valueOf(args[1]));
+            exam.addProperty("date", String.valueOf(args[2]));
+            exam.addProperty("start", String.valueOf(args[3]));
+            exam.addProperty("end", String.valueOf(args[4]));
+            exam.addProperty("version", stateVersion.incrementAndGet());
+            exams.put(exam.get("id").getAsString(), exam);
+            emitDelta(null, exam);
+        });
+        socket.on("edit_exam", args -> {
+            JsonObject exam = exams.get(String.valueOf(args[1]));
+            if (exam == null) {
+                socket.emit("clock_error", args[0], "exam_not_found");
+                return;
+            }
+            exam.addProperty("name", String.valueOf(args[2]));
+            exam.addProperty("date", String.valueOf(args[3]));
+            exam.addProperty("start", String.valueOf(args[4]));
+            exam.addProperty("end", String.valueOf(args[5]));
+            exam.addProperty("version", stateVersion.incrementAndGet());
+            emitDelta(exam.get("id").getAsString(), exam);
+        });
+        socket.on("delete_exam", args -> {
+            String id = String.valueOf(args[1]);
+            if (exams.remove(id) == null) socket.emit("clock_error", args[0], "exam_not_found");
+            else {
+                stateVersion.incrementAndGet();
+                emitDelta(id, null);
+            }
+        });
+        socket.on("toilet", args -> {
+            String gender = String.valueOf(args[1]);
+            boolean occupied = !toilets.getOrDefault(gender, false);
+            toilets.put(gender, occupied);
+            socket.emit("toilet", occupied ? "occupied" : "vacant", gender);
+        });
+        socket.on("clock_id_clash", args -> socket.emit("clock_id_un_clash", identity.toString()));
+    }
+
+    private void sendVersions() {
+        JsonObject versions = new JsonObject();
+        exams.forEach((id, exam) -> versions.add(id, exam.get("version")));
+        JsonObject payload = new JsonObject();
+        payload.addProperty("state", stateVersion.get());
+        payload.add("versions", versions);
+        socket.emit("sync_versions", payload.toString());
+    }
+
+    private void emitDelta(String deleted, JsonObject added) {
+        JsonArray deleteArray = new JsonArray();
+        if (deleted != null) deleteArray.add(deleted);
+        JsonArray newArray = new JsonArray();
+        if (added != null) newArray.add(added);
+        JsonObject payload = new JsonObject();
+        payload.add("delete", deleteArray);
+        payload.add("new", newArray);
+        socket.emit("exams_delta", payload.toString());
+    }
+
+    String getClockID() {
+        return clockID;
+    }
+
+    void connect() {
+        socket.connect();
+    }
+
+    void disconnect() {
+        socket.disconnect();
+    }
+
+    boolean awaitConnected(long millis) throws InterruptedException {
+        return connected.await(millis, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,97 @@
+package app.nush.examclock.standin;
+
+import io.socket.client.IO;
+import io.socket.client.Socket;
+
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless controller, the part of the web panel that drives clocks
+ * <p>
+ * Sends toilet toggles and new exams to the clocks it controls and times how long
+ * it takes for the clock's reaction to come back through the server
+ */
+class SimulatedController {
+    private final Socket socket;
+    private final List<String> controlled = new CopyOnWriteArrayList<>();
+    private final Map<String, Queue<Long>> pendingToilets = new ConcurrentHashMap<>();
+    private final Map<String, Long> pendingExams = new ConcurrentHashMap<>();
+    private final LatencyRecorder toiletLatency;
+    private final LatencyRecorder examLatency;
+    private final AtomicLong sent;
+    private final AtomicLong examCounter = new AtomicLong();
+    private final String nick;
+
+    SimulatedController(String server, String nick, LatencyRecorder toiletLatency, LatencyRecorder examLatency, AtomicLong sent) throws URISyntaxException {
+        this.nick = nick;
+        this.toiletLatency = toiletLatency;
+        this.examLatency = examLatency;
+        this.sent = sent;
+        IO.Options opts = new IO.Options();
+        opts.path = "/socket.controllers";
+        opts.forceNew = true;
+        opts.transports = new String[]{"websocket"};
+        socket = IO.socket(server, opts);
+        socket.on("request_result", args -> {
+            if ("accepted".equals(args[1])) controlled.add(String.valueOf(args[0]));
+        });
+        socket.on("clock_event", args -> {
+            long now = System.nanoTime();
+            String clockID = String.valueOf(args[0]);
+            String event = String.valueOf(args[1]);
+            if (event.equals("toilet")) {
+                Queue<Long> queue = pendingToilets.get(clockID + ":" + args[3]);
+                Long start = queue == null ? null : queue.poll();
+                if (start != null) toiletLatency.record(now - start);
+            } else if (event.equals("exams_delta")) {
+                String payload = String.valueOf(args[2]);
+                // exam names carry the controller nick and a sequence number
+                int index = payload.indexOf(nick + "#");
+                if (index < 0) return;
+                int end = payload.indexOf('"', index);
+                Long start = pendingExams.remove(payload.substring(index, end));
+                if (start != null) examLatency.record(now - start);
+            }
+        });
+    }
+
+    void connect(List<String> clockIDs) {
+        socket.connect();
+        for (String clockID : clockIDs) socket.emit("control", clockID, nick);
+    }
+
+    int getControlledCount() {
+        return controlled.size();
+    }
+
+    /**
+     * Sends one command to a random controlled clock, mostly toilet toggles with the odd new exam
+     */
+    void fire() {
+        if (controlled.isEmpty()) return;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String clockID = controlled.get(random.nextInt(controlled.size()));
+        if (random.nextInt(10) == 0) {
+            String name = nick + "#" + examCounter.incrementAndGet();
+            pendingExams.put(name, System.nanoTime());
+            socket.emit("new_exam", clockID, name, "2020-11-02", "08:00", "10:00");
+        } else {
+            String gender = random.nextBoolean() ? "male" : "female";
+            pendingToilets.computeIfAbsent(clockID + ":" + gender, key -> new ConcurrentLinkedQueue<>()).add(System.nanoTime());
+            socket.emit("toilet", clockID, gender);
+        }
+        sent.incrementAndGet();
+    }
+
+    void disconnect() {
+        socket.disconnect();
+    }
+}
@@ -0,0 +1,264 @@
+package app.nush.examclock.standin;
+
+import com.corundumstudio.socketio.AckRequest;
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.SocketIOServer;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless stand-in for the central server
+ * <p>
+ * Clocks connect to {@code /socket.clocks} on the given port and speak exactly what ClientSocket speaks.
+ * Controllers, normally the web panel, connect to {@code /socket.controllers} on port + 1:
+ * <ul>
+ * <li>control(clockID, nick), answered with request_result(clockID, accepted|rejected)</li>
+ * <li>new_exam(clockID, name, date, start, end)</li>
+ * <li>edit_exam(clockID, id, name, date, start, end)</li>
+ * <li>delete_exam(clockID, id)</li>
+ * <li>toilet(clockID, gender)</li>
+ * </ul>
+ * Everything a clock sends is forwarded to its accepted controllers as clock_event(clockID, event, args...),
+ * except time_sync, which is acknowledged with the server's epoch millis
+ */
+public class StandInServer {
+    static final Gson gson = new Gson();
+
+    private final SocketIOServer clockServer;
+    private final SocketIOServer controllerServer;
+    private final Map<String, ClockSession> clocks = new ConcurrentHashMap<>();
+    private final Map<UUID, ClockSession> clocksBySession = new ConcurrentHashMap<>();
+    private final Map<UUID, SocketIOClient> pendingClashes = new ConcurrentHashMap<>();
+    private final AtomicLong requestCounter = new AtomicLong();
+
+    /**
+     * Instantiates a new stand-in server.
+     *
+     * @param host the host to bind
+     * @param port the clock port, controllers use port + 1
+     */
+    public StandInServer(String host, int port) {
+        clockServer = new SocketIOServer(config(host, port, "/socket.clocks"));
+        controllerServer = new SocketIOServer(config(host, port + 1, "/socket.controllers"));
+        registerClockEvents();
+        registerControllerEvents();
+    }
+
+    public static void main(String... args) throws InterruptedException {
+        String host = "127.0.0.1";
+        int port = 3000;
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("--host")) host = args[++i];
+            else if (args[i].equals("--port")) port = Integer.parseInt(args[++i]);
+        }
+        StandInServer server = new StandInServer(host, port);
+        server.start();
+        System.out.println("Stand-in server up, clocks: -Dexamclock.server=http://" + host + ":" + port + ", controllers on port " + (port + 1));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        Thread.currentThread().join();
+    }
+
+    private static Configuration config(String host, int port, String context) {
+        Configuration config = new Configuration();
+        config.setHostname(host);
+        config.setPort(port);
+        config.setContext(context);
+        return config;
+    }
+
+    public void start() {
+        clockServer.start();
+        controllerServer.start();
+    }
+
+    public void stop() {
+        clockServer.stop();
+        controllerServer.stop();
+    }
+
+    public int getClockCount() {
+        return clocks.size();
+    }
+
+    private void registerClockEvents() {
+        clockServer.addConnectListener(client -> {
+            String query = client.getHandshakeData().getSingleUrlParam("clock");
+            JsonObject identity = query == null ? new JsonObject() : gson.fromJson(query, JsonObject.class);
+            register(client, identity);
+        });
+        clockServer.addDisconnectListener(client -> {
+            ClockSession session = clocksBySession.remove(client.getSessionId());
+            pendingClashes.remove(client.getSessionId());
+            if (session != null) clocks.remove(session.clockID, session);
+        });
+        // time sync, acknowledged with the server's clock
+        clockServer.addEventListener("time_sync", Object.class, (client, sent, ack) -> {
+            if (ack.isAckRequested()) ack.sendAckData(System.currentTimeMillis());
+        });
+        clockServer.addEventListener("clock_id_un_clash", String.class, (client, data, ack) -> {
+            if (pendingClashes.remove(client.getSessionId()) != null)
+                register(client, gson.fromJson(data, JsonObject.class));
+        });
+        clockServer.addEventListener("new_exam", String.class, (client, data, ack) -> withSession(client, session -> {
+            JsonObject exam = gson.fromJson(data, JsonObject.class);
+            session.exams.put(exam.get("id").getAsString(), exam);
+            forward(session, "new_exam", data);
+        }));
+        clockServer.addEventListener("delete_exam", String.class, (client, id, ack) -> withSession(client, session -> {
+            session.exams.remove(id);
+            forward(session, "delete_exam", id);
+        }));
+        clockServer.addEventListener("exams_delta", String.class, (client, data, ack) -> withSession(client, session -> {
+            JsonObject delta = gson.fromJson(data, JsonObject.class);
+            for (JsonElement id : delta.getAsJsonArray("delete")) session.exams.remove(id.getAsString());
+            for (JsonElement exam : delta.getAsJsonArray("new"))
+                session.exams.put(exam.getAsJsonObject().get("id").getAsString(), exam.getAsJsonObject());
+            if (ack.isAckRequested()) ack.sendAckData("ok");
+            forward(session, "exams_delta", data);
+        }));
+        clockServer.addEventListener("exam_update", Object.class, (client, data, ack) -> withSession(client, session -> {
+            JsonArray exams = gson.fromJson(String.valueOf(data), JsonArray.class);
+            session.exams.clear();
+            for (JsonElement exam : exams)
+                session.exams.put(exam.getAsJsonObject().get("id").getAsString(), exam.getAsJsonObject());
+            forward(session, "exam_update", String.valueOf(data));
+        }));
+        clockServer.addEventListener("sync_versions", String.class, (client, data, ack) -> withSession(client, session -> {
+            JsonObject payload = gson.fromJson(data, JsonObject.class);
+            JsonObject versions = payload.getAsJsonObject("versions");
+            session.exams.keySet().retainAll(versions.keySet());
+            JsonArray ids = new JsonArray();
+            for (Map.Entry<String, JsonElement> entry : versions.entrySet()) {
+                JsonObject cached = session.exams.get(entry.getKey());
+                if (cached == null || !cached.has("version") || cached.get("version").getAsLong() != entry.getValue().getAsLong())
+                    ids.add(entry.getKey());
+            }
+            if (ack.isAckRequested()) ack.sendAckData("ok");
+            JsonObject request = new JsonObject();
+            request.add("ids", ids);
+            client.sendEvent("sync_request", request.toString());
+        }));
+        clockServer.addEventListener("exams_sync", String.class, (client, data, ack) -> withSession(client, session -> {
+            for (JsonElement exam : gson.fromJson(data, JsonObject.class).getAsJsonArray("exams"))
+                session.exams.put(exam.getAsJsonObject().get("id").getAsString(), exam.getAsJsonObject());
+            forward(session, "exams_sync", data);
+        }));
+        clockServer.addEventListener("rename", String.class, (client, name, ack) -> withSession(client, session -> {
+            session.name = name;
+            forward(session, "rename", name);
+        }));
+        clockServer.addMultiTypeEventListener("toilet", (client, args, ack) -> withSession(client, session -> {
+            session.toilets.put(args.get(1), args.get(0));
+            forward(session, "toilet", args.get(0), args.get(1));
+        }), String.class, String.class);
+        clockServer.addMultiTypeEventListener("request_callback", (client, args, ack) -> withSession(client, session -> {
+            String controllerID = args.get(0);
+            String result = args.get(1);
+            SocketIOClient controller = controllerServer.getClient(UUID.fromString(controllerID));
+            if (controller == null) return;
+            if (result.equals("accepted")) session.controllers.add(controller.getSessionId());
+            controller.sendEvent("request_result", session.clockID, result);
+        }), String.class, String.class);
+        clockServer.addMultiTypeEventListener("clock_error", (client, args, ack) -> withSession(client, session ->
+                forward(session, "clock_error", args.get(0), args.get(1))), String.class, String.class);
+    }
+
+    private void registerControllerEvents() {
+        controllerServer.addMultiTypeEventListener("control", (controller, args, ack) -> {
+            ClockSession session = clocks.get(args.<String>get(0));
+            if (session == null) controller.sendEvent("request_result", args.get(0), "not_found");
+            else session.client.sendEvent("request", controller.getSessionId().toString(), args.get(1));
+        }, String.class, String.class);
+        controllerServer.addMultiTypeEventListener("new_exam", (controller, args, ack) -> withControl(controller, args.get(0), session ->
+                session.client.sendEvent("new_exam", nextRequestID(), args.get(1), args.get(2), args.get(3), args.get(4))
+        ), String.class, String.class, String.class, String.class, String.class);
+        controllerServer.addMultiTypeEventListener("edit_exam", (controller, args, ack) -> withControl(controller, args.get(0), session ->
+                session.client.sendEvent("edit_exam", nextRequestID(), args.get(1), args.get(2), args.get(3), args.get(4), args.get(5))
+        ), String.class, String.class, String.class, String.class, String.class, String.class);
+        controllerServer.addMultiTypeEventListener("delete_exam", (controller, args, ack) -> withControl(controller, args.get(0), session ->
+                session.client.sendEvent("delete_exam", nextRequestID(), args.get(1))
+        ), String.class, String.class);
+        controllerServer.addMultiTypeEventListener("toilet", (controller, args, ack) -> withControl(controller, args.get(0), session ->
+                session.client.sendEvent("toilet", nextRequestID(), args.get(1))
+        ), String.class, String.class);
+        controllerServer.addDisconnectListener(controller -> {
+            for (ClockSession session : clocks.values()) session.controllers.remove(controller.getSessionId());
+        });
+    }
+
+    private void register(SocketIOClient client, JsonObject identity) {
+        String clockID = identity.has("clockID") ? identity.get("clockID").getAsString() : client.getSessionId().toString();
+        ClockSession existing = clocks.get(clockID);
+        if (existing != null && existing.client.isChannelOpen() && existing.client != client) {
+            pendingClashes.put(client.getSessionId(), client);
+            client.sendEvent("clock_id_clash");
+            return;
+        }
+        ClockSession session = new ClockSession(clockID, client);
+        if (identity.has("clockName")) session.name = identity.get("clockName").getAsString();
+        if (existing != null) {
+            // a reconnect keeps the cache, that is what sync_versions is for
+            session.exams.putAll(existing.exams);
+            session.controllers.addAll(existing.controllers);
+        }
+        // clocks send the whole list until they know the server syncs by version
+        if (identity.has("exams")) for (JsonElement exam : identity.getAsJsonArray("exams"))
+            session.exams.put(exam.getAsJsonObject().get("id").getAsString(), exam.getAsJsonObject());
+        clocks.put(clockID, session);
+        clocksBySession.put(client.getSessionId(), session);
+    }
+
+    private void withSession(SocketIOClient client, SessionAction action) {
+        ClockSession session = clocksBySession.get(client.getSessionId());
+        if (session != null) action.run(session);
+    }
+
+    private void withControl(SocketIOClient controller, String clockID, SessionAction action) {
+        ClockSession session = clocks.get(clockID);
+        if (session != null && session.controllers.contains(controller.getSessionId())) action.run(session);
+        else controller.sendEvent("request_result", clockID, "not_allowed");
+    }
+
+    private void forward(ClockSession session, String event, Object... args) {
+        Object[] forwarded = new Object[args.length + 2];
+        forwarded[0] = session.clockID;
+        forwarded[1] = event;
+        System.arraycopy(args, 0, forwarded, 2, args.length);
+        for (UUID id : session.controllers) {
+            SocketIOClient controller = controllerServer.getClient(id);
+            if (controller != null) controller.sendEvent("clock_event", forwarded);
+        }
+    }
+
+    private String nextRequestID() {
+        return "req" + requestCounter.incrementAndGet();
+    }
+
+    private interface SessionAction {
+        void run(ClockSession session);
+    }
+
+    /**
+     * What the server knows about one connected clock
+     */
+    private static final class ClockSession {
+        private final String clockID;
+        private final SocketIOClient client;
+        private final Map<String, JsonObject> exams = new ConcurrentHashMap<>();
+        private final Map<String, String> toilets = new ConcurrentHashMap<>();
+        private final Set<UUID> controllers = ConcurrentHashMap.newKeySet();
+        private volatile String name;
+
+        private ClockSession(String clockID, SocketIOClient client) {
+            this.clockID = clockID;
+            this.client = client;
+        }
+    }
+}